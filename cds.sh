@@ -0,0 +1,75 @@
+#!/usr/bin/env bash
+# Class Data Sharing (AppCDS) archive of MicroRASP: agent, shaded dependencies and bootstrap classes, JDK 11+.
+# A training run with the agent records the loaded classes, a static dump archives them together with the JDK's
+# default class list and, optionally, the application's own class list, so one archive serves both.
+# An archive (and the bootstrap jar) belongs to the exact JDK build that created it.
+# JDK 11-15 do not archive class files older than version 50, which Byte Buddy ships: the archive then holds
+# the JDK and application classes only, agent classes keep loading from the jar. JDK 16+ archive them as well.
+#
+# Usage: ./cds.sh [outDir] [appClassPath [appClassList]]
+#   outDir        default target/cds
+#   appClassPath  application jars (':' separated, no directories), archived ahead of the agent jar
+#   appClassList  the application's class list (-XX:DumpLoadedClassList=app.classlist from its own training run)
+# Env:   JAVA (default: java), AGENT_ARGS (agent options of the training run, same profile as production),
+#        TRAIN_OPTS (extra JVM options of the training run)
+#
+# Output: outDir/MicroRASP-bootstrap.jar, MicroRASP.classlist, MicroRASP.jsa and cds.args, an argument file with the
+# JVM options to run with: java @outDir/cds.args -cp <class path printed at the end> <main class>
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")" && pwd)"
+JAVA="${JAVA:-java}"
+OUT="${1:-$ROOT/target/cds}"
+APP_CP="${2:-}"
+APP_CLASSLIST="${3:-}"
+AGENT_ARGS="${AGENT_ARGS:-}"
+TRAIN_OPTS="${TRAIN_OPTS:-}"
+
+AGENT_JAR="$ROOT/target/MicroRASP-0.1-shaded.jar"
+[ -f "$AGENT_JAR" ] || (cd "$ROOT" && mvn -B -q package)
+
+FEATURE="$("$JAVA" -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')"
+JAVA_HOME_DIR="$("$JAVA" -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.home/ {print $2}')"
+if [ "${FEATURE%%.*}" = "1" ] || [ "${FEATURE%%.*}" -lt 11 ]; then
+    echo "AppCDS archives of the agent need JDK 11+, $JAVA is $FEATURE" >&2
+    exit 1
+fi
+if [ "$FEATURE" -lt 16 ]; then
+    echo "Note: JDK $FEATURE does not archive pre-Java 6 class files (Byte Buddy), agent classes will not be shared" >&2
+fi
+
+mkdir -p "$OUT"
+OUT="$(cd "$OUT" && pwd)"
+BOOT_JAR="$OUT/MicroRASP-bootstrap.jar"
+CLASSLIST="$OUT/MicroRASP.classlist"
+ARCHIVE="$OUT/MicroRASP.jsa"
+# Dump-time class path: must be a prefix of the runtime class path, CDS does not archive
+# classes of the agent jar appended by -javaagent alone
+CLASS_PATH="${APP_CP:+$APP_CP:}$AGENT_JAR"
+AGENT_OPTION="-javaagent:$AGENT_JAR${AGENT_ARGS:+=$AGENT_ARGS}"
+
+"$JAVA" -version 2>&1 | head -1
+
+# 1. Bootstrap classes on the boot class path from JVM start: a runtime append disables sharing of all other classes
+"$JAVA" -jar "$AGENT_JAR" bootstrap "$BOOT_JAR"
+
+# 2. Training run: a full agent install (the CLI main class does nothing else)
+rm -f "$CLASSLIST"
+# shellcheck disable=SC2086
+"$JAVA" -Xshare:off -XX:DumpLoadedClassList="$CLASSLIST" -Xbootclasspath/a:"$BOOT_JAR" $TRAIN_OPTS \
+    "$AGENT_OPTION" -Drasp.log.path="$OUT/training-logs" -cp "$AGENT_JAR" com.h2tg.rasp.Main help > "$OUT/training.log" 2>&1 \
+    || { tail -20 "$OUT/training.log"; exit 1; }
+echo "Training run loaded $(grep -c '^com/h2tg/rasp/' "$CLASSLIST") agent classes"
+
+# 3. Static dump: JDK default classes + application classes + agent classes, first occurrence wins
+COMBINED="$OUT/combined.classlist"
+cat "$JAVA_HOME_DIR/lib/classlist" ${APP_CLASSLIST:+"$APP_CLASSLIST"} "$CLASSLIST" | awk '!seen[$0]++' > "$COMBINED"
+rm -f "$ARCHIVE"
+"$JAVA" -Xshare:dump -XX:SharedClassListFile="$COMBINED" -XX:SharedArchiveFile="$ARCHIVE" \
+    -Xbootclasspath/a:"$BOOT_JAR" -cp "$CLASS_PATH" > "$OUT/dump.log" 2>&1 \
+    || { tail -20 "$OUT/dump.log"; exit 1; }
+echo "Archived $(wc -l < "$COMBINED") listed classes into $ARCHIVE ($(du -h "$ARCHIVE" | cut -f1)), dump log: $OUT/dump.log"
+
+printf '%s\n' "-XX:SharedArchiveFile=$ARCHIVE" "-Xbootclasspath/a:$BOOT_JAR" "$AGENT_OPTION" > "$OUT/cds.args"
+echo "Run with: $JAVA @$OUT/cds.args -cp $CLASS_PATH[:more jars] <main class>"
+echo "Check sharing with -Xlog:class+load: agent classes report \"source: shared objects file\""
@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+# Deserialization corpus replay: SerialHook throughput and verdict accuracy, agent absent and attached at startup.
+# The corpus (loadtest/target/corpus) is generated by the loadtest build from the agent's deny list and gadget chains.
+#
+# Usage: loadtest/corpus.sh [warmupSeconds] [durationSeconds]
+# Env:   JAVA (default: java), REPLAY_OPTS (extra JVM options for the replay)
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAVA="${JAVA:-java}"
+WARMUP="${1:-5}"
+DURATION="${2:-10}"
+REPLAY_OPTS="${REPLAY_OPTS:--Xms512m -Xmx512m}"
+
+AGENT_JAR="$ROOT/target/MicroRASP-0.1-shaded.jar"
+LOADTEST_JAR="$ROOT/loadtest/target/MicroRASP-loadtest-0.1-shaded.jar"
+CORPUS="$ROOT/loadtest/target/corpus"
+
+[ -f "$AGENT_JAR" ] || (cd "$ROOT" && mvn -B -q package)
+# Rebuild when the corpus is missing (loadtest built before the agent)
+[ -f "$LOADTEST_JAR" ] && [ -f "$CORPUS/manifest.tsv" ] || (cd "$ROOT/loadtest" && mvn -B -q package)
+
+LOG_DIR="$ROOT/loadtest/target/logs"
+mkdir -p "$LOG_DIR"
+
+"$JAVA" -version 2>&1 | head -1
+# shellcheck disable=SC2086
+"$JAVA" $REPLAY_OPTS -cp "$LOADTEST_JAR" com.h2tg.rasp.loadtest.CorpusReplay absent "$CORPUS" "$WARMUP" "$DURATION" 2> /dev/null
+# Agent log and MISMATCH lines go to the log file, only the report is printed
+status=0
+# shellcheck disable=SC2086
+"$JAVA" $REPLAY_OPTS "-javaagent:$AGENT_JAR" -Drasp.log.path="$LOG_DIR/rasp-corpus" \
+    -cp "$LOADTEST_JAR" com.h2tg.rasp.loadtest.CorpusReplay startup "$CORPUS" "$WARMUP" "$DURATION" \
+    > "$LOG_DIR/corpus-startup.log" 2>&1 || status=$?
+grep '^startup ' "$LOG_DIR/corpus-startup.log" || true
+if [ "$status" -ne 0 ]; then
+    echo "Verdict regression, see MISMATCH lines in $LOG_DIR/corpus-startup.log"
+    exit "$status"
+fi
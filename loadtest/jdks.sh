@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+# Loadtest harness (corpus.sh and sinks.sh) on each JDK in turn, JDK 8 and JDK 17 by default:
+# the agent is a multi-release jar, the Java 8 baseline and the JDK 9+ overrides (StackCapture, SerialFilter)
+# only both run when the harness runs on both sides of the split.
+# The agent and the loadtest are built once, by the JDK running Maven.
+#
+# Usage: loadtest/jdks.sh [warmupSeconds] [durationSeconds]
+# Env:   JDKS (space-separated JAVA_HOMEs, default: JDK 8 and JDK 17 from SDKMAN), SDKMAN_CANDIDATES_DIR
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+WARMUP="${1:-2}"
+DURATION="${2:-5}"
+CANDIDATES="${SDKMAN_CANDIDATES_DIR:-$HOME/.sdkman/candidates}/java"
+JDKS="${JDKS:-$CANDIDATES/8.0.392-tem $CANDIDATES/17.0.9-tem}"
+
+(cd "$ROOT" && mvn -B -q package)
+(cd "$ROOT/loadtest" && mvn -B -q package)
+
+status=0
+for home in $JDKS; do
+    if [ ! -x "$home/bin/java" ]; then
+        echo "No JDK at $home, skipped (set JDKS)"
+        status=1
+        continue
+    fi
+    echo "== $home"
+    JAVA="$home/bin/java" "$ROOT/loadtest/corpus.sh" "$WARMUP" "$DURATION" || status=$?
+    JAVA="$home/bin/java" "$ROOT/loadtest/sinks.sh" "$WARMUP" "$DURATION" || status=$?
+done
+exit "$status"
@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# End-to-end load test of MicroRASP: agent absent, attached at startup, attached dynamically.
+# Everything runs on loopback, no network access is needed once both jars are built.
+#
+# Usage: loadtest/run.sh [threads] [warmupSeconds] [durationSeconds] [paths]
+# Env:   JAVA (default: java), SERVER_OPTS (extra JVM options for the server), PORT (default: 18080)
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAVA="${JAVA:-java}"
+PORT="${PORT:-18080}"
+THREADS="${1:-8}"
+WARMUP="${2:-10}"
+DURATION="${3:-30}"
+PATHS="${4:-/servlet,/deserialize,/jndi,/exec}"
+SERVER_OPTS="${SERVER_OPTS:--Xms512m -Xmx512m}"
+
+AGENT_JAR="$ROOT/target/MicroRASP-0.1-shaded.jar"
+LOADTEST_JAR="$ROOT/loadtest/target/MicroRASP-loadtest-0.1-shaded.jar"
+
+[ -f "$AGENT_JAR" ] || (cd "$ROOT" && mvn -B -q package)
+[ -f "$LOADTEST_JAR" ] || (cd "$ROOT/loadtest" && mvn -B -q package)
+
+LOG_DIR="$ROOT/loadtest/target/logs"
+mkdir -p "$LOG_DIR"
+
+run_mode() {
+    local mode="$1"
+    local agent_opts=()
+    if [ "$mode" = "startup" ]; then
+        agent_opts=("-javaagent:$AGENT_JAR")
+    fi
+
+    # shellcheck disable=SC2086
+    "$JAVA" $SERVER_OPTS "${agent_opts[@]}" -Dsun.net.httpserver.nodelay=true -Drasp.log.path="$LOG_DIR/rasp-$mode" \
+        -cp "$LOADTEST_JAR" com.h2tg.rasp.loadtest.LoadTestServer "$PORT" > "$LOG_DIR/server-$mode.log" 2>&1 &
+    local server=$!
+    trap 'kill $server 2>/dev/null || true; wait $server 2>/dev/null || true' RETURN
+
+    for _ in $(seq 1 100); do
+        grep -q READY "$LOG_DIR/server-$mode.log" 2>/dev/null && break
+        sleep 0.2
+    done
+
+    if [ "$mode" = "dynamic" ]; then
+        "$JAVA" -cp "$LOADTEST_JAR" com.h2tg.rasp.loadtest.AgentAttacher "$server" "$AGENT_JAR"
+    fi
+
+    "$JAVA" -cp "$LOADTEST_JAR" com.h2tg.rasp.loadtest.LoadGenerator \
+        "$mode" "$PORT" "$THREADS" "$WARMUP" "$DURATION" "$PATHS"
+}
+
+"$JAVA" -version 2>&1 | head -1
+for mode in absent startup dynamic; do
+    run_mode "$mode"
+done
@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+# Hook overhead on benign calls through hooked sinks (SinkBenchmark): agent absent and attached at startup,
+# reported per case as ns/op of both runs and their difference.
+#
+# Usage: loadtest/sinks.sh [warmupSeconds] [durationSeconds] [case prefix]
+# Env:   JAVA (default: java), BENCH_OPTS (extra JVM options), AGENT_ARGS (agent options)
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAVA="${JAVA:-java}"
+WARMUP="${1:-2}"
+DURATION="${2:-5}"
+PREFIX="${3:-}"
+BENCH_OPTS="${BENCH_OPTS:--Xms256m -Xmx256m}"
+AGENT_ARGS="${AGENT_ARGS:-}"
+
+AGENT_JAR="$ROOT/target/MicroRASP-0.1-shaded.jar"
+LOADTEST_JAR="$ROOT/loadtest/target/MicroRASP-loadtest-0.1-shaded.jar"
+
+[ -f "$AGENT_JAR" ] || (cd "$ROOT" && mvn -B -q package)
+[ -f "$LOADTEST_JAR" ] || (cd "$ROOT/loadtest" && mvn -B -q package)
+
+LOG_DIR="$ROOT/loadtest/target/logs"
+mkdir -p "$LOG_DIR"
+
+"$JAVA" -version 2>&1 | head -1
+# shellcheck disable=SC2086
+"$JAVA" $BENCH_OPTS -cp "$LOADTEST_JAR" com.h2tg.rasp.loadtest.SinkBenchmark absent "$WARMUP" "$DURATION" "$PREFIX" \
+    > "$LOG_DIR/sinks-absent.log" 2>&1
+# shellcheck disable=SC2086
+"$JAVA" $BENCH_OPTS "-javaagent:$AGENT_JAR${AGENT_ARGS:+=$AGENT_ARGS}" -Drasp.log.path="$LOG_DIR/rasp-sinks" \
+    -cp "$LOADTEST_JAR" com.h2tg.rasp.loadtest.SinkBenchmark startup "$WARMUP" "$DURATION" "$PREFIX" \
+    > "$LOG_DIR/sinks-startup.log" 2>&1
+
+# Join both runs by case name (agent output in the startup log is skipped)
+awk '$1 == "absent" { absent[$2] = $3; order[++n] = $2 }
+     $1 == "startup" { startup[$2] = $3 }
+     END {
+         printf "%-32s %12s %12s %12s\n", "case", "absent", "startup", "overhead"
+         for (i = 1; i <= n; i++) {
+             c = order[i]
+             if (c in startup) {
+                 printf "%-32s %9.1f ns %9.1f ns %+9.1f ns\n", c, absent[c], startup[c], startup[c] - absent[c]
+             } else {
+                 printf "%-32s %9.1f ns %12s\n", c, absent[c], "failed"
+             }
+         }
+     }' "$LOG_DIR/sinks-absent.log" "$LOG_DIR/sinks-startup.log"
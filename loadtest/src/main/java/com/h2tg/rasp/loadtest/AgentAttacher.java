@@ -0,0 +1,29 @@
+package com.h2tg.rasp.loadtest;
+
+import java.lang.reflect.Method;
+
+/**
+ * Dynamically attaches the MicroRASP agent to a running JVM (JDK 9+, or JDK 8 with tools.jar).
+ * The Attach API is used reflectively so the harness compiles without tools.jar.
+ *
+ * Usage: java -cp MicroRASP-loadtest-0.1-shaded.jar com.h2tg.rasp.loadtest.AgentAttacher pid agentJar [agentArgs]
+ */
+public class AgentAttacher {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: AgentAttacher pid agentJar [agentArgs]");
+            System.exit(1);
+        }
+        Class<?> vmClass = Class.forName("com.sun.tools.attach.VirtualMachine");
+        Object vm = vmClass.getMethod("attach", String.class).invoke(null, args[0]);
+        try {
+            Method loadAgent = vmClass.getMethod("loadAgent", String.class, String.class);
+            long start = System.nanoTime();
+            loadAgent.invoke(vm, args[1], args.length > 2 ? args[2] : null);
+            System.out.println(String.format("ATTACHED pid=%s in %.1f ms", args[0], (System.nanoTime() - start) / 1e6));
+        } finally {
+            vmClass.getMethod("detach").invoke(vm);
+        }
+    }
+}
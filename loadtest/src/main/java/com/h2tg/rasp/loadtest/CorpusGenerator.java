@@ -0,0 +1,389 @@
+package com.h2tg.rasp.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.SignedObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the deserialization corpus replayed by CorpusReplay, run by the build (package phase).
+ * Benign streams are session objects and large collections; malicious streams embed one class of
+ * SerialHelper.denyClasses or one SerialHelper.gadgetChains sequence inside a benign session map,
+ * so detection happens mid-stream like in real payloads.
+ *
+ * Classes outside the classpath cannot be serialized, so malicious streams are written with Link stubs
+ * whose descriptor names are rewritten in the stream afterwards (serialVersionUID taken from the real class when it exists).
+ * Descriptors are counted while writing, renaming does not change the count.
+ *
+ * Usage: java -cp MicroRASP-loadtest-0.1-shaded.jar com.h2tg.rasp.loadtest.CorpusGenerator outputDir agentJar
+ *
+ * Output: one .ser file per stream and manifest.tsv (file, expected verdict block|allow, descriptors, bytes)
+ */
+public class CorpusGenerator {
+
+    static final String MANIFEST = "manifest.tsv";
+
+    private static final String SERIAL_HELPER = "com.h2tg.rasp.bootstrap.SerialHelper";
+
+    private static final Class<?>[] LINKS = {Link0.class, Link1.class, Link2.class, Link3.class};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: CorpusGenerator outputDir agentJar");
+            return;
+        }
+        File output = new File(args[0]);
+        File agent = new File(args[1]);
+        if (!agent.exists()) {
+            // Runs inside the Maven build, never fail it: the corpus is only needed by corpus.sh
+            System.err.println("[corpus] " + agent + " not found, build the agent first; corpus not generated");
+            return;
+        }
+
+        String[] denyClasses;
+        String[][] gadgetChains;
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{agent.toURI().toURL()}, null)) {
+            Class<?> helper = Class.forName(SERIAL_HELPER, true, loader);
+            denyClasses = (String[]) helper.getField("denyClasses").get(null);
+            gadgetChains = (String[][]) helper.getField("gadgetChains").get(null);
+        }
+
+        if (!output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("Cannot create " + output);
+        }
+        CorpusGenerator generator = new CorpusGenerator(output);
+        generator.benign();
+        for (String denied : denyClasses) {
+            String className = denied.endsWith(".") ? denied + "Gadget" : denied;
+            generator.write("deny-" + className, true, session(0, links(className)));
+        }
+        for (String[] chain : gadgetChains) {
+            generator.write("chain-" + chain[0], true, session(0, chain(Arrays.copyOfRange(chain, 1, chain.length))));
+        }
+        // Real secondary-deserialization wrapper (no gadget chain covers it, only its exact deny entry)
+        generator.write("signed-object", true, session(0, signedObject((Serializable) session(1, null))));
+        generator.finish();
+    }
+
+    private final File output;
+    private final StringBuilder manifest = new StringBuilder();
+    private int benign;
+    private int malicious;
+    private long bytes;
+
+    private CorpusGenerator(File output) {
+        this.output = output;
+    }
+
+    private void benign() throws IOException {
+        write("session-small", false, session(1, null));
+        Map<String, Object> cart = session(2, null);
+        List<CartItem> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            items.add(new CartItem("SKU-" + i, i % 5 + 1, new BigDecimal(i * 3 + ".99")));
+        }
+        cart.put("cart", items);
+        write("session-cart", false, cart);
+
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            numbers.add(i);
+        }
+        write("collection-list-100k", false, numbers);
+
+        Map<String, String> strings = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            strings.put("key-" + i, "value-" + i);
+        }
+        write("collection-map-10k", false, strings);
+
+        Map<String, Object> nested = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            TreeMap<String, Object> entry = new TreeMap<>();
+            entry.put("user", new SessionUser(i, "user" + i, new String[]{"reader"}));
+            entry.put("visits", new long[]{i, i * 2L, i * 3L});
+            entry.put("seen", new Date(1_700_000_000_000L + i));
+            nested.put("entry-" + i, entry);
+        }
+        write("collection-nested", false, nested);
+
+        Map<String, Object> mixed = new HashMap<>();
+        mixed.put("uri", URI.create("https://example.com/a?b=c"));
+        mixed.put("uuid", new UUID(42, 43));
+        mixed.put("amount", new BigDecimal("1234.5678"));
+        EnumMap<TimeUnit, Integer> units = new EnumMap<>(TimeUnit.class);
+        units.put(TimeUnit.SECONDS, 1);
+        mixed.put("units", units);
+        mixed.put("matrix", new int[][]{{1, 2}, {3, 4}});
+        write("jdk-mix", false, mixed);
+    }
+
+    private void write(String name, boolean block, Object root) throws IOException {
+        CountingOutputStream counting = new CountingOutputStream();
+        try (ObjectOutputStream out = counting.open()) {
+            out.writeObject(root);
+        }
+        byte[] stream = counting.buffer.toByteArray();
+        for (Map.Entry<Class<?>, String> rename : counting.renames.entrySet()) {
+            stream = rename(stream, rename.getKey(), rename.getValue());
+        }
+
+        String file = name.replaceAll("[^A-Za-z0-9._-]", "_") + ".ser";
+        try (OutputStream out = new FileOutputStream(new File(output, file))) {
+            out.write(stream);
+        }
+        manifest.append(file).append('\t').append(block ? "block" : "allow").append('\t')
+                .append(counting.descriptors).append('\t').append(stream.length).append('\n');
+        bytes += stream.length;
+        if (block) {
+            malicious++;
+        } else {
+            benign++;
+        }
+    }
+
+    private void finish() throws IOException {
+        try (PrintWriter out = new PrintWriter(new File(output, MANIFEST), "UTF-8")) {
+            out.print(manifest);
+        }
+        System.out.println("[corpus] " + benign + " benign and " + malicious + " malicious stream(s), "
+                + bytes / 1024 + " KB in " + output);
+    }
+
+    /**
+     * Session-like map carrying an optional payload
+     */
+    private static Map<String, Object> session(int id, Object payload) {
+        Map<String, Object> session = new HashMap<>();
+        session.put("user", new SessionUser(id, "user" + id, new String[]{"reader", "writer"}));
+        session.put("createdAt", new Date(1_700_000_000_000L));
+        session.put("locale", "en_US");
+        session.put("csrf", UUID.nameUUIDFromBytes(("csrf" + id).getBytes(StandardCharsets.UTF_8)).toString());
+        if (payload != null) {
+            session.put("payload", payload);
+        }
+        return session;
+    }
+
+    /**
+     * Gadget chain objects, real PriorityQueue when the chain starts with it (its comparator carries the rest)
+     */
+    private static Object chain(String[] classes) {
+        if ("java.util.PriorityQueue".equals(classes[0])) {
+            @SuppressWarnings("unchecked")
+            PriorityQueue<Object> queue = new PriorityQueue<>(2, (Comparator<Object>) links(Arrays.copyOfRange(classes, 1, classes.length)));
+            queue.add(1);
+            queue.add(2);
+            return queue;
+        }
+        return links(classes);
+    }
+
+    /**
+     * SignedObject wrapping a serialized payload, its getObject() deserializes the payload with a fresh ObjectInputStream
+     */
+    private static SignedObject signedObject(Serializable payload) throws IOException {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("DSA");
+            generator.initialize(1024);
+            return new SignedObject(payload, generator.generateKeyPair().getPrivate(), Signature.getInstance("SHA1withDSA"));
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Nested Link stubs, the i-th renamed to classes[i]
+     */
+    private static Link links(String... classes) {
+        Link head = null;
+        for (int i = classes.length - 1; i >= 0; i--) {
+            Link link = newLink(i);
+            link.rename = classes[i];
+            link.next = head;
+            head = link;
+        }
+        return head;
+    }
+
+    private static Link newLink(int index) {
+        try {
+            return (Link) LINKS[index].getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Rewrite the descriptor of a stub: TC_CLASSDESC, class name (modified UTF-8), serialVersionUID
+     */
+    private static byte[] rename(byte[] stream, Class<?> stub, String className) {
+        byte[] from = utf(stub.getName());
+        byte[] to = utf(className);
+        int at = indexOf(stream, from);
+        if (at < 1 || stream[at - 1] != 0x72) {
+            throw new IllegalStateException("Descriptor of " + stub.getName() + " not found");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(stream.length + to.length);
+        out.write(stream, 0, at);
+        out.write(to, 0, to.length);
+        int suidAt = at + from.length;
+        long suid = realSerialVersionUID(className);
+        if (suid != 0) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (suid >>> shift));
+            }
+            suidAt += 8;
+        }
+        out.write(stream, suidAt, stream.length - suidAt);
+        return out.toByteArray();
+    }
+
+    /**
+     * serialVersionUID of an existing serializable class, a mismatch would fail the stream before the descriptor is returned
+     */
+    private static long realSerialVersionUID(String className) {
+        try {
+            ObjectStreamClass real = ObjectStreamClass.lookup(Class.forName(className, false, null));
+            return real != null ? real.getSerialVersionUID() : 0;
+        } catch (Throwable t) {
+            return 0;
+        }
+    }
+
+    private static byte[] utf(String s) {
+        byte[] chars = s.getBytes(StandardCharsets.UTF_8);
+        byte[] utf = new byte[chars.length + 2];
+        utf[0] = (byte) (chars.length >>> 8);
+        utf[1] = (byte) chars.length;
+        System.arraycopy(chars, 0, utf, 2, chars.length);
+        return utf;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Counts class descriptors while writing and records the stubs to rename
+     */
+    static class CountingOutputStream {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final Map<Class<?>, String> renames = new LinkedHashMap<>();
+        int descriptors;
+
+        ObjectOutputStream open() throws IOException {
+            return new ObjectOutputStream(buffer) {
+                {
+                    enableReplaceObject(true);
+                }
+
+                @Override
+                protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+                    descriptors++;
+                    super.writeClassDescriptor(desc);
+                }
+
+                @Override
+                protected Object replaceObject(Object obj) {
+                    if (obj instanceof Link) {
+                        renames.put(obj.getClass(), ((Link) obj).rename);
+                    }
+                    return obj;
+                }
+            };
+        }
+    }
+
+    static class SessionUser implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final long id;
+        final String name;
+        final String[] roles;
+
+        SessionUser(long id, String name, String[] roles) {
+            this.id = id;
+            this.name = name;
+            this.roles = roles;
+        }
+    }
+
+    static class CartItem implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String sku;
+        final int quantity;
+        final BigDecimal price;
+
+        CartItem(String sku, int quantity, BigDecimal price) {
+            this.sku = sku;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+
+    /**
+     * Stub of a class outside the classpath, one subclass per chain position so each gets its own descriptor
+     */
+    abstract static class Link implements Serializable, Comparator<Object> {
+        private static final long serialVersionUID = 1L;
+        transient String rename;
+        Object next;
+
+        @Override
+        public int compare(Object a, Object b) {
+            return 0;
+        }
+    }
+
+    static class Link0 extends Link {
+        private static final long serialVersionUID = 1L;
+    }
+
+    static class Link1 extends Link {
+        private static final long serialVersionUID = 1L;
+    }
+
+    static class Link2 extends Link {
+        private static final long serialVersionUID = 1L;
+    }
+
+    static class Link3 extends Link {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,193 @@
+package com.h2tg.rasp.loadtest;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays the CorpusGenerator corpus through ObjectInputStream, normally with the agent attached
+ * (SerialHook runs outside any request, the policy is fully active there).
+ * One verification pass checks every verdict, then benign and malicious streams are replayed
+ * separately for the given time and reported as MB/s, class descriptors/s and allocation rate.
+ *
+ * Agent output is discarded while replaying, a blocked stream prints an event per replay.
+ *
+ * Usage: java [-javaagent:MicroRASP.jar] -cp MicroRASP-loadtest-0.1-shaded.jar com.h2tg.rasp.loadtest.CorpusReplay
+ *            label corpusDir [warmupSeconds] [durationSeconds]
+ *
+ * Exit code 1 if the agent is attached and a verdict differs from the manifest (regression baseline for the deny logic).
+ */
+public class CorpusReplay {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: CorpusReplay label corpusDir [warmupSeconds] [durationSeconds]");
+            System.exit(1);
+        }
+        String label = args[0];
+        File corpus = new File(args[1]);
+        long warmupNanos = (args.length > 2 ? Long.parseLong(args[2]) : 5) * 1_000_000_000L;
+        long durationNanos = (args.length > 3 ? Long.parseLong(args[3]) : 10) * 1_000_000_000L;
+        boolean agent = System.getProperty("rasp.armed") != null;
+
+        List<Stream> benign = new ArrayList<>();
+        List<Stream> malicious = new ArrayList<>();
+        try (BufferedReader manifest = new BufferedReader(new InputStreamReader(
+                new FileInputStream(new File(corpus, CorpusGenerator.MANIFEST)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = manifest.readLine()) != null) {
+                String[] columns = line.split("\t");
+                Stream stream = new Stream(columns[0], "block".equals(columns[1]), Integer.parseInt(columns[2]),
+                        Files.readAllBytes(new File(corpus, columns[0]).toPath()));
+                (stream.block ? malicious : benign).add(stream);
+            }
+        }
+
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        int mismatches;
+        Result benignResult;
+        Result maliciousResult;
+        try {
+            mismatches = verify(benign, err) + verify(malicious, err);
+            benignResult = measure(benign, warmupNanos, durationNanos);
+            maliciousResult = measure(malicious, warmupNanos, durationNanos);
+        } finally {
+            System.setErr(err);
+        }
+
+        System.out.println(String.format("%-10s corpus=%d benign + %d malicious, verdict mismatches=%d",
+                label, benign.size(), malicious.size(), mismatches));
+        System.out.println(benignResult.format(label + " benign"));
+        System.out.println(maliciousResult.format(label + " malicious"));
+        if (agent && mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replay every stream once and compare its verdict with the manifest
+     */
+    private static int verify(List<Stream> streams, PrintStream out) {
+        int mismatches = 0;
+        for (Stream stream : streams) {
+            Outcome outcome = replay(stream);
+            boolean blocked = outcome == Outcome.BLOCKED;
+            if (blocked != stream.block || outcome == Outcome.FAILED && !stream.block) {
+                mismatches++;
+                out.println("MISMATCH " + stream.file + " expected=" + (stream.block ? "block" : "allow") + " actual=" + outcome);
+            }
+        }
+        return mismatches;
+    }
+
+    private static Result measure(List<Stream> streams, long warmupNanos, long durationNanos) {
+        Result result = new Result();
+        if (streams.isEmpty()) {
+            return result;
+        }
+        long warmupEnd = System.nanoTime() + warmupNanos;
+        while (System.nanoTime() < warmupEnd) {
+            for (Stream stream : streams) {
+                replay(stream);
+            }
+        }
+
+        long allocatedStart = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (Stream stream : streams) {
+                if (replay(stream) == Outcome.BLOCKED) {
+                    result.blocked++;
+                }
+                result.streams++;
+                result.bytes += stream.data.length;
+                result.descriptors += stream.descriptors;
+            }
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < durationNanos);
+        result.nanos = elapsed;
+        result.allocated = allocatedBytes() - allocatedStart;
+        return result;
+    }
+
+    private static Outcome replay(Stream stream) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(stream.data))) {
+            in.readObject();
+            return Outcome.PASSED;
+        } catch (SecurityException e) {
+            return Outcome.BLOCKED;
+        } catch (InvalidClassException e) {
+            // Rejected by the agent's serial filter (JDK 9+), the SecurityException is the cause
+            return e.getCause() instanceof SecurityException ? Outcome.BLOCKED : Outcome.FAILED;
+        } catch (Exception e) {
+            // Unresolvable or mismatching classes of malicious streams when nothing blocks them
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * Bytes allocated by this thread so far, -1 if the JVM does not report it
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    enum Outcome {
+        PASSED, BLOCKED, FAILED
+    }
+
+    static class Stream {
+        final String file;
+        final boolean block;
+        final int descriptors;
+        final byte[] data;
+
+        Stream(String file, boolean block, int descriptors, byte[] data) {
+            this.file = file;
+            this.block = block;
+            this.descriptors = descriptors;
+            this.data = data;
+        }
+    }
+
+    static class Result {
+        long streams;
+        long blocked;
+        long bytes;
+        long descriptors;
+        long nanos;
+        long allocated;
+
+        String format(String label) {
+            double seconds = Math.max(1, nanos) / 1e9;
+            return String.format("%-20s streams=%d blocked=%d throughput=%.1f MB/s %.0f descriptors/s %.0f streams/s alloc=%.1f MB/s (%.0f B/descriptor)",
+                    label, streams, blocked, bytes / seconds / (1024 * 1024), descriptors / seconds, streams / seconds,
+                    allocated / seconds / (1024 * 1024), descriptors > 0 ? (double) allocated / descriptors : 0);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.h2tg.rasp.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Closed-loop load generator for LoadTestServer.
+ * Each thread issues keep-alive GET requests round-robin over the given paths and
+ * records every latency; results after warmup are merged into one report line.
+ *
+ * Usage: java -cp MicroRASP-loadtest-0.1-shaded.jar com.h2tg.rasp.loadtest.LoadGenerator
+ *            label port threads warmupSeconds durationSeconds path[,path...]
+ *
+ * Output: label requests errors throughput(req/s) p50 p99 p999 (microseconds)
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 6) {
+            System.err.println("Usage: LoadGenerator label port threads warmupSeconds durationSeconds path[,path...]");
+            System.exit(1);
+        }
+        String label = args[0];
+        int port = Integer.parseInt(args[1]);
+        int threads = Integer.parseInt(args[2]);
+        long warmupNanos = Long.parseLong(args[3]) * 1_000_000_000L;
+        long durationNanos = Long.parseLong(args[4]) * 1_000_000_000L;
+        String[] paths = args[5].split(",");
+
+        final URL[] urls = new URL[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            urls[i] = new URL("http", "127.0.0.1", port, paths[i]);
+        }
+
+        final long measureStart = System.nanoTime() + warmupNanos;
+        final long measureEnd = measureStart + durationNanos;
+        final List<Worker> workers = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Worker worker = new Worker(urls, t, measureStart, measureEnd, done);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "loadgen-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        int total = 0;
+        long errors = 0;
+        for (Worker worker : workers) {
+            total += worker.count;
+            errors += worker.errors;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, all, offset, worker.count);
+            offset += worker.count;
+        }
+        Arrays.sort(all);
+
+        double seconds = durationNanos / 1e9;
+        System.out.println(String.format("%-10s requests=%d errors=%d throughput=%.0f req/s p50=%.1fus p99=%.1fus p999=%.1fus",
+                label, total, errors, total / seconds,
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999)));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+
+    static class Worker implements Runnable {
+        private final URL[] urls;
+        private final long measureStart;
+        private final long measureEnd;
+        private final CountDownLatch done;
+        private final byte[] buffer = new byte[8192];
+        private int next;
+
+        long[] latencies = new long[1 << 16];
+        int count;
+        long errors;
+
+        Worker(URL[] urls, int offset, long measureStart, long measureEnd, CountDownLatch done) {
+            this.urls = urls;
+            this.next = offset;
+            this.measureStart = measureStart;
+            this.measureEnd = measureEnd;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    URL url = urls[next++ % urls.length];
+                    long start = System.nanoTime();
+                    if (start >= measureEnd) {
+                        break;
+                    }
+                    boolean ok = request(url);
+                    long end = System.nanoTime();
+                    if (start < measureStart) {
+                        continue;
+                    }
+                    if (!ok) {
+                        errors++;
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = end - start;
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private boolean request(URL url) {
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection) url.openConnection();
+                int status = connection.getResponseCode();
+                InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+                if (in != null) {
+                    // Drain fully so the keep-alive connection is reused
+                    while (in.read(buffer) != -1) {
+                    }
+                    in.close();
+                }
+                return status == 200;
+            } catch (IOException e) {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.h2tg.rasp.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.spi.InitialContextFactory;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal embedded HTTP service exercising the code paths MicroRASP hooks.
+ * Loopback only, no container: requests are bridged from the JDK HttpServer
+ * into real javax.servlet.http.HttpServlet instances.
+ *
+ * Endpoints:
+ * - /servlet      servlet dispatch only (RequestHook)
+ * - /deserialize  servlet + Java deserialization of a session-like object (SerialHook)
+ * - /jndi         servlet + InitialContext.lookup of a java: name (JndiHook)
+ * - /exec         subprocess call outside a servlet (ProcessHook fast path, not blocked)
+ *
+ * Usage: java -cp MicroRASP-loadtest-0.1-shaded.jar com.h2tg.rasp.loadtest.LoadTestServer [port] [threads]
+ */
+public class LoadTestServer {
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18080;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, InMemoryContextFactory.class.getName());
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.createContext("/servlet", new ServletBridge(new EchoServlet()));
+        server.createContext("/deserialize", new ServletBridge(new DeserializeServlet()));
+        server.createContext("/jndi", new ServletBridge(new JndiServlet()));
+        server.createContext("/exec", new ExecHandler());
+        server.start();
+
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        System.out.println("READY pid=" + pid + " port=" + port + " threads=" + threads);
+    }
+
+    /**
+     * Bridges a JDK HttpExchange into HttpServlet.service(ServletRequest, ServletResponse)
+     */
+    static class ServletBridge implements HttpHandler {
+        private final HttpServlet servlet;
+
+        ServletBridge(HttpServlet servlet) {
+            this.servlet = servlet;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final int[] status = {200};
+            final String method = exchange.getRequestMethod();
+            final String uri = exchange.getRequestURI().getPath();
+
+            HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+                    LoadTestServer.class.getClassLoader(),
+                    new Class<?>[]{HttpServletRequest.class},
+                    (proxy, m, a) -> {
+                        switch (m.getName()) {
+                            case "getMethod":
+                                return method;
+                            case "getRequestURI":
+                            case "getServletPath":
+                                return uri;
+                            case "getProtocol":
+                                return "HTTP/1.1";
+                            case "getParameterMap":
+                                return Collections.emptyMap();
+                            case "getHeaderNames":
+                            case "getParameterNames":
+                            case "getAttributeNames":
+                                return Collections.emptyEnumeration();
+                            default:
+                                return defaultValue(m.getReturnType());
+                        }
+                    });
+
+            final ServletOutputStream output = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+            final PrintWriter writer = new PrintWriter(output, true);
+            HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(
+                    LoadTestServer.class.getClassLoader(),
+                    new Class<?>[]{HttpServletResponse.class},
+                    (proxy, m, a) -> {
+                        switch (m.getName()) {
+                            case "getOutputStream":
+                                return output;
+                            case "getWriter":
+                                return writer;
+                            case "setStatus":
+                            case "sendError":
+                                status[0] = (Integer) a[0];
+                                return null;
+                            default:
+                                return defaultValue(m.getReturnType());
+                        }
+                    });
+
+            try {
+                servlet.service(request, response);
+            } catch (ServletException | RuntimeException e) {
+                status[0] = 500;
+                body.reset();
+                body.write(String.valueOf(e).getBytes("UTF-8"));
+            }
+            writer.flush();
+            send(exchange, status[0], body.toByteArray());
+        }
+    }
+
+    static class EchoServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.getWriter().print("ok");
+        }
+    }
+
+    static class DeserializeServlet extends HttpServlet {
+        private final byte[] payload;
+
+        DeserializeServlet() throws IOException {
+            Map<String, Object> session = new HashMap<>();
+            List<String> roles = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                roles.add("role-" + i);
+            }
+            session.put("user", "alice");
+            session.put("roles", roles);
+            session.put("loginTime", new Date(0));
+            session.put("visits", 42);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(session);
+            }
+            payload = bytes.toByteArray();
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+                Map<?, ?> session = (Map<?, ?>) ois.readObject();
+                resp.getWriter().print(session.size());
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    static class JndiServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            try {
+                resp.getWriter().print(new InitialContext().lookup("java:comp/env/jdbc/app"));
+            } catch (javax.naming.NamingException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    static class ExecHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            Process process = new ProcessBuilder("true").start();
+            int code;
+            try {
+                code = process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                code = -1;
+            }
+            send(exchange, code == 0 ? 200 : 500, String.valueOf(code).getBytes("UTF-8"));
+        }
+    }
+
+    /**
+     * Initial context serving fixed java:comp/env entries from memory
+     */
+    public static class InMemoryContextFactory implements InitialContextFactory {
+        private static final Map<String, Object> ENTRIES = new HashMap<>();
+
+        static {
+            ENTRIES.put("java:comp/env/jdbc/app", "jdbc:h2:mem:app");
+        }
+
+        @Override
+        public Context getInitialContext(Hashtable<?, ?> environment) {
+            return (Context) Proxy.newProxyInstance(
+                    LoadTestServer.class.getClassLoader(),
+                    new Class<?>[]{Context.class},
+                    (proxy, m, a) -> {
+                        if (m.getName().equals("lookup") && a[0] instanceof String) {
+                            return ENTRIES.get(a[0]);
+                        }
+                        if (m.getName().equals("close")) {
+                            return null;
+                        }
+                        throw new OperationNotSupportedException(m.getName());
+                    });
+        }
+    }
+
+    static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == long.class) {
+            return -1L;
+        }
+        if (type == int.class) {
+            return -1;
+        }
+        return null;
+    }
+}
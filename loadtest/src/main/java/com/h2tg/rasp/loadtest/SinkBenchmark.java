@@ -0,0 +1,123 @@
+package com.h2tg.rasp.loadtest;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.naming.spi.InitialContextFactory;
+
+/**
+ * Per-call cost of benign calls through hooked sinks, outside any request (the hooks run their full check there).
+ * Run once without and once with the agent, the difference is the hook overhead per call.
+ * Each case is warmed up, then called in batches for the given time and reported as ns/op.
+ *
+ * Usage: java [-javaagent:MicroRASP.jar] -cp MicroRASP-loadtest-0.1-shaded.jar com.h2tg.rasp.loadtest.SinkBenchmark
+ *            label [warmupSeconds] [durationSeconds] [case prefix]
+ */
+public class SinkBenchmark {
+
+    private static final int BATCH = 10_000;
+
+    /**
+     * Results folded into this field so the calls cannot be eliminated
+     */
+    static volatile int sink;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: SinkBenchmark label [warmupSeconds] [durationSeconds] [case prefix]");
+            System.exit(1);
+        }
+        String label = args[0];
+        long warmupNanos = (args.length > 1 ? Long.parseLong(args[1]) : 2) * 1_000_000_000L;
+        long durationNanos = (args.length > 2 ? Long.parseLong(args[2]) : 5) * 1_000_000_000L;
+        String prefix = args.length > 3 ? args[3] : "";
+
+        for (Map.Entry<String, Callable<Object>> entry : cases().entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                continue;
+            }
+            double nanosPerCall = measure(entry.getValue(), warmupNanos, durationNanos);
+            System.out.println(String.format("%-10s %-32s %10.1f ns/op", label, entry.getKey(), nanosPerCall));
+        }
+    }
+
+    private static Map<String, Callable<Object>> cases() throws NamingException, NoSuchMethodException {
+        Map<String, Callable<Object>> cases = new LinkedHashMap<>();
+
+        // InitialContext.lookup: JndiHelper.checkLookupName on local and relative names
+        Hashtable<String, Object> environment = new Hashtable<>();
+        environment.put(Context.INITIAL_CONTEXT_FACTORY, LocalContextFactory.class.getName());
+        InitialContext context = new InitialContext(environment);
+        cases.put("jndi-lookup-java-name", () -> context.lookup("java:comp/env/jdbc/orders"));
+        cases.put("jndi-lookup-relative-name", () -> context.lookup("jdbc/orders"));
+        cases.put("jndi-lookup-link", () -> context.lookupLink("java:comp/env/jdbc/orders"));
+
+        // Method.invoke, Constructor.newInstance, Class.forName: ReflectionGuard danger bit lookup on benign targets
+        Method length = String.class.getMethod("length");
+        Constructor<StringBuilder> builder = StringBuilder.class.getConstructor();
+        ClassLoader loader = SinkBenchmark.class.getClassLoader();
+        cases.put("reflection-method-invoke", () -> length.invoke("orders"));
+        cases.put("reflection-constructor-new", () -> builder.newInstance());
+        cases.put("reflection-forname-jdk", () -> Class.forName("java.lang.String"));
+        cases.put("reflection-forname-app", () -> Class.forName("com.h2tg.rasp.loadtest.SinkBenchmark", false, loader));
+
+        return cases;
+    }
+
+    private static double measure(Callable<Object> call, long warmupNanos, long durationNanos) throws Exception {
+        int hash = 0;
+        long warmupEnd = System.nanoTime() + warmupNanos;
+        while (System.nanoTime() < warmupEnd) {
+            for (int i = 0; i < BATCH; i++) {
+                hash += System.identityHashCode(call.call());
+            }
+        }
+
+        long calls = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                hash += System.identityHashCode(call.call());
+            }
+            calls += BATCH;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < durationNanos);
+        sink = hash;
+        return (double) elapsed / calls;
+    }
+
+    /**
+     * In-process naming provider, every lookup returns the same object without I/O
+     */
+    public static class LocalContextFactory implements InitialContextFactory {
+
+        private static final Object BOUND = new Object();
+
+        @Override
+        public Context getInitialContext(Hashtable<?, ?> environment) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("lookup")) {
+                    return BOUND;
+                }
+                if (name.equals("close")) {
+                    return null;
+                }
+                if (name.equals("getEnvironment")) {
+                    return new Hashtable<>(environment);
+                }
+                throw new javax.naming.OperationNotSupportedException(name);
+            };
+            return (Context) Proxy.newProxyInstance(SinkBenchmark.class.getClassLoader(), new Class<?>[]{Context.class}, handler);
+        }
+    }
+}
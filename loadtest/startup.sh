@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Agent startup cost with and without the AppCDS archive (cds.sh), per JDK.
+# Each run starts a JVM that installs the agent and exits (CLI main class), reported as the median of all runs:
+# JVM wall time and the agent's own install time (StartupProfiler total).
+#
+# Usage: loadtest/startup.sh [runs] [java ...]
+#   java  JDK 11+ java executables (default: java)
+# Env:   AGENT_ARGS (agent options, also used for the training run)
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+RUNS="${1:-10}"
+shift || true
+JAVAS=("$@")
+[ "${#JAVAS[@]}" -gt 0 ] || JAVAS=(java)
+AGENT_ARGS="${AGENT_ARGS:-}"
+
+AGENT_JAR="$ROOT/target/MicroRASP-0.1-shaded.jar"
+[ -f "$AGENT_JAR" ] || (cd "$ROOT" && mvn -B -q package)
+AGENT_OPTION="-javaagent:$AGENT_JAR${AGENT_ARGS:+=$AGENT_ARGS}"
+
+LOG_DIR="$ROOT/loadtest/target/logs/startup"
+rm -rf "$LOG_DIR"
+mkdir -p "$LOG_DIR"
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { if (NR == 0) print "-"; else if (NR % 2) print v[(NR + 1) / 2]; else printf "%.1f\n", (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+# run_mode <java> <label> <jvm options...>: prints "label wall-ms install-ms"
+run_mode() {
+    local java="$1" label="$2"
+    shift 2
+    local walls=() installs=()
+    for i in $(seq 1 "$RUNS"); do
+        local logs="$LOG_DIR/$label-$i"
+        local start end
+        start=$(date +%s%N)
+        "$java" "$@" -Drasp.log.path="$logs" -cp "$AGENT_JAR" com.h2tg.rasp.Main help > /dev/null 2>&1
+        end=$(date +%s%N)
+        walls+=($(( (end - start) / 1000000 )))
+        local total
+        total="$(grep -ho 'Startup profile (total [0-9.]*' "$logs"/microrasp.log* 2>/dev/null | tail -1 | grep -o '[0-9.]*$' || true)"
+        [ -z "$total" ] || installs+=("$total")
+    done
+    printf '%-22s wall=%6s ms  agent install=%8s ms\n' "$label" \
+        "$(printf '%s\n' "${walls[@]}" | median)" "$( [ "${#installs[@]}" -gt 0 ] && printf '%s\n' "${installs[@]}" | median || echo -)"
+}
+
+for java in "${JAVAS[@]}"; do
+    feature="$("$java" -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')"
+    "$java" -version 2>&1 | head -1
+    cds="$ROOT/loadtest/target/cds/$feature"
+    JAVA="$java" AGENT_ARGS="$AGENT_ARGS" "$ROOT/cds.sh" "$cds" > "$LOG_DIR/cds-$feature.log" 2>&1 \
+        || { echo "cds.sh failed, see $LOG_DIR/cds-$feature.log"; continue; }
+
+    run_mode "$java" "jdk$feature-absent"
+    run_mode "$java" "jdk$feature-agent" "$AGENT_OPTION"
+    run_mode "$java" "jdk$feature-agent-cds" "@$cds/cds.args"
+done
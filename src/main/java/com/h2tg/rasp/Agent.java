@@ -1,18 +1,42 @@
 package com.h2tg.rasp;
 
+import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.BodyScanner;
+import com.h2tg.rasp.bootstrap.JdkSupport;
+import com.h2tg.rasp.bootstrap.NativeGuard;
+import com.h2tg.rasp.bootstrap.NetworkGuard;
+import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.RuleMatcher;
+import com.h2tg.rasp.bootstrap.SerialFilter;
+import com.h2tg.rasp.core.AgentOptions;
+import com.h2tg.rasp.core.FootprintMeter;
 import com.h2tg.rasp.core.HookListener;
 import com.h2tg.rasp.core.HookRegistry;
+import com.h2tg.rasp.core.RuleCompiler;
+import com.h2tg.rasp.core.RuleSet;
+import com.h2tg.rasp.core.StartupProfiler;
 import com.h2tg.rasp.log.MicroLogger;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
 import net.bytebuddy.dynamic.scaffold.TypeValidation;
 import net.bytebuddy.matcher.ElementMatcher;
 import net.bytebuddy.matcher.ElementMatchers;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.instrument.Instrumentation;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -26,40 +50,193 @@ import static net.bytebuddy.matcher.ElementMatchers.*;
 public class Agent {
 
     /**
-     * Premain method called when agent is loaded at JVM startup
+     * Classes shared with Advice code, injected to Bootstrap ClassLoader (nested classes listed explicitly)
+     */
+    private static final String[] BOOTSTRAP_CLASSES = {
+            "com.h2tg.rasp.bootstrap.RequestContext",
+            "com.h2tg.rasp.bootstrap.RequestContext$Carrier",
+            "com.h2tg.rasp.bootstrap.RequestContext$Holder",
+            "com.h2tg.rasp.bootstrap.RequestContext$Holders",
+            "com.h2tg.rasp.bootstrap.RequestShape",
+            "com.h2tg.rasp.bootstrap.RequestShape$Shapes",
+            "com.h2tg.rasp.bootstrap.SerialHelper",
+            "com.h2tg.rasp.bootstrap.SerialHelper$GadgetStates",
+            "com.h2tg.rasp.bootstrap.SerialFilter",
+            "com.h2tg.rasp.bootstrap.JndiHelper",
+            "com.h2tg.rasp.bootstrap.StackCapture",
+            "com.h2tg.rasp.bootstrap.StackCapture$Site",
+            "com.h2tg.rasp.bootstrap.JdkSupport",
+            "com.h2tg.rasp.bootstrap.DeserializeGuard",
+            "com.h2tg.rasp.bootstrap.ExpressionGuard",
+            "com.h2tg.rasp.bootstrap.NetworkGuard",
+            "com.h2tg.rasp.bootstrap.NetworkGuard$Node",
+            "com.h2tg.rasp.bootstrap.NetworkGuard$HostVerdict",
+            "com.h2tg.rasp.bootstrap.XxeGuard",
+            "com.h2tg.rasp.bootstrap.XxeGuard$Entry",
+            "com.h2tg.rasp.bootstrap.ReflectionGuard",
+            "com.h2tg.rasp.bootstrap.ReflectionGuard$Danger",
+            "com.h2tg.rasp.bootstrap.ReflectionGuard$Dangers",
+            "com.h2tg.rasp.bootstrap.ShellGuard",
+            "com.h2tg.rasp.bootstrap.NativeGuard",
+            "com.h2tg.rasp.bootstrap.NativeGuard$Stamp",
+            "com.h2tg.rasp.bootstrap.BodyScanner",
+            "com.h2tg.rasp.bootstrap.RoutePolicy",
+            "com.h2tg.rasp.bootstrap.RoutePolicy$Node",
+            "com.h2tg.rasp.bootstrap.RuleMatcher",
+            "com.h2tg.rasp.bootstrap.RuleEngine"
+    };
+
+    /**
+     * Footprint mode: "full" (default) or "slim"
+     */
+    public static final String FOOTPRINT_PROPERTY = "rasp.footprint";
+
+    /**
+     * "true" logs loaded agent classes and the retained heap estimate after install (off by default:
+     * the heap walk visits up to 500k objects and reflects into JDK internals)
+     */
+    public static final String FOOTPRINT_REPORT_PROPERTY = "rasp.footprint.report";
+
+    /**
+     * Install mode: "sync" (default, loaded classes are retransformed before premain returns)
+     * or "async" (premain returns once the transformer is registered, loaded classes are retransformed in the background)
+     */
+    public static final String INSTALL_PROPERTY = "rasp.install";
+
+    /**
+     * Milliseconds a request arriving before an async install is armed waits for it (default 2000, 0 serves it unprotected)
+     */
+    public static final String INSTALL_WAIT_PROPERTY = "rasp.install.wait";
+
+    /**
+     * System property set to "true" once every hook is in place, "false" while an async install is pending
+     */
+    public static final String ARMED_PROPERTY = "rasp.armed";
+
+    /**
+     * agentmain argument requesting uninstallation
+     */
+    public static final String UNINSTALL_COMMAND = "uninstall";
+
+    /**
+     * agentmain argument prefix loading a rule file ("rules=/path/rules.txt"),
+     * swaps the rule set of an installed agent without retransforming anything
+     */
+    public static final String RULES_ARGUMENT = "rules=";
+
+    /**
+     * Transformer installed on the JVM, kept as the single runtime root of the agent
+     */
+    private static volatile ResettableClassFileTransformer installedTransformer;
+
+    /**
+     * Instrumentation the transformer was registered with, each attach receives its own instance
+     */
+    private static volatile Instrumentation installedInstrumentation;
+
+    /**
+     * Premain method called when agent is loaded at JVM startup.
+     * agentArgs carry the hook profile and options (see {@link AgentOptions}).
      */
     public static void premain(String agentArgs, Instrumentation inst) {
-        install(agentArgs, inst);
+        install(agentArgs, inst, false);
     }
 
     /**
-     * Agentmain method called when agent is dynamically attached
+     * Agentmain method called when agent is dynamically attached.
+     * agentArgs "uninstall" removes all hooks instead (see {@link Main}).
      */
     public static void agentmain(String agentArgs, Instrumentation inst) {
-        install(agentArgs, inst);
+        String command = agentArgs != null ? agentArgs.trim() : null;
+        if (UNINSTALL_COMMAND.equals(command)) {
+            uninstall(inst);
+            return;
+        }
+        if (command != null && command.startsWith(RULES_ARGUMENT)) {
+            String path = command.substring(RULES_ARGUMENT.length());
+            synchronized (Agent.class) {
+                if (installedTransformer != null) {
+                    loadRules(path);
+                    return;
+                }
+                System.setProperty(RuleSet.RULES_PROPERTY, path);
+            }
+        }
+        install(agentArgs, inst, true);
     }
 
     /**
      * Install the RASP agent
+     *
+     * @param attached Dynamic attach: loaded classes cannot gain methods, native hooks are replaced by their attach substitutes
      */
-    private static void install(String agentArgs, Instrumentation inst) {
+    private static synchronized void install(String agentArgs, Instrumentation inst, boolean attached) {
+        if (installedTransformer != null) {
+            MicroLogger.warn("AgentInstall", "MicroRASP Agent is already installed, skipping");
+            return;
+        }
+
+        // Options become system properties before the logger and the bootstrap classes read them
+        List<String> options = AgentOptions.apply(agentArgs);
+
         MicroLogger.info("AgentInstall", "========================================");
         MicroLogger.info("AgentInstall", "MicroRASP Agent Starting...");
         MicroLogger.info("AgentInstall", "========================================");
+        for (String option : options) {
+            MicroLogger.info("AgentOptions", option);
+        }
 
+        StartupProfiler profiler = StartupProfiler.getInstance();
+        profiler.reset();
+        boolean slim = "slim".equalsIgnoreCase(System.getProperty(FOOTPRINT_PROPERTY, "full"));
+        boolean async = "async".equalsIgnoreCase(System.getProperty(INSTALL_PROPERTY, "sync"));
+        boolean footprint = Boolean.getBoolean(FOOTPRINT_REPORT_PROPERTY);
         try {
             // Step 1: Inject bootstrap classes to Bootstrap ClassLoader
             // This is critical for cross-classloader access to shared utilities
-            injectBootstrapClasses(inst, "com.h2tg.rasp.bootstrap.RequestContext", "com.h2tg.rasp.bootstrap.SerialHelper", "com.h2tg.rasp.bootstrap.JndiHelper");
+            long start = profiler.begin();
+            injectBootstrapClasses(inst, BOOTSTRAP_CLASSES);
+            profiler.end(StartupProfiler.Phase.BOOTSTRAP_INJECTION, start);
+            MicroLogger.info("RoutePolicy", "Hook profile: " + RoutePolicy.format(RoutePolicy.ALL));
+            for (String rule : RoutePolicy.describe()) {
+                MicroLogger.info("RoutePolicy", rule);
+            }
+            for (String range : NetworkGuard.describe()) {
+                MicroLogger.info("NetworkGuard", range);
+            }
+            for (String library : NativeGuard.describe()) {
+                MicroLogger.info("NativeGuard", library);
+            }
+            if (RoutePolicy.isActive(RoutePolicy.ENABLED, RoutePolicy.DESERIALIZE)) {
+                MicroLogger.info("SerialFilter", SerialFilter.install());
+            }
+            if (RoutePolicy.isActive(RoutePolicy.ENABLED, RoutePolicy.BODY)) {
+                for (String indicator : BodyScanner.describe()) {
+                    MicroLogger.info("BodyScanner", indicator);
+                }
+            }
+            String rulesFile = System.getProperty(RuleSet.RULES_PROPERTY);
+            if (rulesFile != null && !rulesFile.isEmpty()) {
+                loadRules(rulesFile);
+            }
 
 
             // Step 2: Initialize HookRegistry and scan for hooks
+            start = profiler.begin();
             HookRegistry.init();
             HookRegistry hookRegistry = HookRegistry.getInstance();
-            hookRegistry.scanHooks();
+            hookRegistry.setAttached(attached);
+            if (slim || attached) {
+                // Reflections finds no URLs for the hooks package when the agent jar was appended by dynamic attach
+                hookRegistry.scanHooksFromCodeSource();
+            } else {
+                hookRegistry.scanHooks();
+            }
+            profiler.end(StartupProfiler.Phase.HOOK_DISCOVERY, start);
 
             // Step 3: Build the agent with ByteBuddy configuration
-            AgentBuilder agentBuilder = buildAgentBuilder();
+            start = profiler.begin();
+            AgentBuilder agentBuilder = buildAgentBuilder(hookRegistry.getWidestLoaderScope(), async);
 
             // Step 4: Configure injection strategy for Bootstrap ClassLoader
             File tempDir = new File(System.getProperty("java.io.tmpdir"));
@@ -68,21 +245,166 @@ public class Agent {
 
             // Step 5: Apply all discovered hooks
             agentBuilder = hookRegistry.apply(agentBuilder);
+            profiler.end(StartupProfiler.Phase.BUILDER_CONSTRUCTION, start);
 
-            // Step 6: Install the agent
-            agentBuilder.installOn(inst);
+            // Step 6: Install the agent (retransformation is timed by HookListener.RetransformationListener).
+            // Async: requests are held from here until the background retransformation arms the agent
+            Map<String, HookHandler.LoaderScope> targets = async ? hookRegistry.getTargets() : null;
+            if (async) {
+                RequestContext.disarm(Long.getLong(INSTALL_WAIT_PROPERTY, 2_000L));
+                System.setProperty(ARMED_PROPERTY, "false");
+            }
+            start = profiler.begin();
+            installedTransformer = agentBuilder.installOn(inst);
+            installedInstrumentation = inst;
+            profiler.end(StartupProfiler.Phase.INSTALLATION, start);
+
+            // Step 7: Release install-only state, only the transformer graph stays reachable
+            HookRegistry.release();
+            if (!async) {
+                // Per-type timings cover installation only, classes loaded later are not timed
+                profiler.stopRecording();
+            }
 
             MicroLogger.info("AgentInstall", "========================================");
             MicroLogger.info("AgentInstall", "MicroRASP Agent Installed Successfully");
             MicroLogger.info("AgentInstall", "========================================");
+            profiler.logReport();
+            if (footprint && !async) {
+                FootprintMeter.logReport(FootprintMeter.measure(inst, installedTransformer, profiler));
+            }
+
+            // Step 8: Retransform already loaded targets (async), new classes are transformed at load from now on
+            if (async) {
+                final ResettableClassFileTransformer transformer = installedTransformer;
+                Thread retransformer = new Thread(() -> retransformLoaded(inst, transformer, targets, footprint), "MicroRASP-retransform");
+                retransformer.setDaemon(true);
+                retransformer.start();
+            } else {
+                System.setProperty(ARMED_PROPERTY, "true");
+            }
         } catch (Throwable t) {
+            RequestContext.arm();
+            profiler.stopRecording();
             MicroLogger.error("AgentInstall", "Failed to install MicroRASP agent", t);
         }
     }
 
+    /**
+     * Retransform hook targets loaded before the transformer was registered, then arm the agent.
+     * One batch first, class by class if the batch fails, so a single unmodifiable class does not leave the others unhooked.
+     * The footprint report, when enabled, is taken here as well, off the premain path.
+     */
+    private static void retransformLoaded(Instrumentation inst,
+                                          ResettableClassFileTransformer transformer,
+                                          Map<String, HookHandler.LoaderScope> targets,
+                                          boolean footprint) {
+        long start = System.nanoTime();
+        try {
+            List<Class<?>> loaded = new ArrayList<>();
+            for (Class<?> type : inst.getAllLoadedClasses()) {
+                HookHandler.LoaderScope scope = targets.get(type.getName());
+                if (scope != null && inst.isModifiableClass(type)
+                        && HookRegistry.loaderMatcher(scope).matches(type.getClassLoader())) {
+                    loaded.add(type);
+                }
+            }
+            int failed = 0;
+            try {
+                inst.retransformClasses(loaded.toArray(new Class<?>[0]));
+            } catch (Throwable batchFailure) {
+                for (Class<?> type : loaded) {
+                    if (installedTransformer != transformer) {
+                        return;
+                    }
+                    try {
+                        inst.retransformClasses(type);
+                    } catch (Throwable t) {
+                        failed++;
+                        StartupProfiler.getInstance().recordError();
+                        MicroLogger.error("AgentInstall", "Failed to retransform " + type.getName(), t);
+                    }
+                }
+            }
+            if (installedTransformer != transformer) {
+                return;
+            }
+            System.setProperty(ARMED_PROPERTY, "true");
+            MicroLogger.info("AgentInstall", "MicroRASP Agent armed: retransformed " + (loaded.size() - failed) + " of "
+                    + loaded.size() + " loaded class(es) in the background in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Throwable t) {
+            MicroLogger.error("AgentInstall", "Background retransformation failed, classes loaded from now on are still hooked", t);
+        } finally {
+            // Held requests are released whatever happened, they never wait on a thread that is gone
+            RequestContext.arm();
+            StartupProfiler.getInstance().stopRecording();
+        }
+        if (footprint && installedTransformer == transformer) {
+            FootprintMeter.logReport(FootprintMeter.measure(inst, transformer, StartupProfiler.getInstance()));
+        }
+    }
+
+    /**
+     * Uninstall the RASP agent: remove the transformer and restore original bytecode of all hooked classes.
+     * Bootstrap helpers stay loaded but are no longer called, a later attach installs the hooks again.
+     */
+    private static synchronized void uninstall(Instrumentation inst) {
+        ResettableClassFileTransformer transformer = installedTransformer;
+        if (transformer == null) {
+            MicroLogger.warn("AgentUninstall", "MicroRASP Agent is not installed, nothing to uninstall");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            boolean reset = transformer.reset(installedInstrumentation, AgentBuilder.RedefinitionStrategy.RETRANSFORMATION);
+            installedTransformer = null;
+            installedInstrumentation = null;
+            RuleEngine.install(null);
+            // Release requests still held by a pending async install
+            RequestContext.arm();
+            MicroLogger.info("AgentUninstall", "MicroRASP Agent " + (reset ? "uninstalled" : "was not registered")
+                    + ", original bytecode restored in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Throwable t) {
+            MicroLogger.error("AgentUninstall", "Failed to uninstall MicroRASP agent", t);
+        }
+    }
+
+    /**
+     * Load a rule file, compile it and swap it in atomically.
+     * The previous rule set stays active if the file is invalid, the interpreter is used if compilation fails.
+     */
+    private static synchronized void loadRules(String path) {
+        try {
+            long start = System.nanoTime();
+            RuleSet ruleSet = RuleSet.load(new File(path));
+            RuleMatcher matcher;
+            try {
+                matcher = RuleCompiler.compile(ruleSet);
+            } catch (Throwable t) {
+                MicroLogger.error("RuleEngine", "Failed to compile rules, falling back to the interpreter", t);
+                matcher = ruleSet.interpreter();
+            }
+            RuleMatcher previous = RuleEngine.install(matcher);
+            MicroLogger.info("RuleEngine", "Loaded " + matcher.size() + " rule(s) from " + path + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms"
+                    + (previous != null ? ", replaced " + previous.size() + " rule(s)" : ""));
+        } catch (Throwable t) {
+            MicroLogger.error("RuleEngine", "Failed to load rules from " + path + ", keeping the active rule set", t);
+        }
+    }
+
+    /**
+     * Get the transformer installed on the JVM, null if the agent is not installed
+     */
+    public static ResettableClassFileTransformer getInstalledTransformer() {
+        return installedTransformer;
+    }
+
     /**
      * Inject specified bootstrap classes to Bootstrap ClassLoader.
      * This ensures cross-classloader access to shared utilities and contexts.
+     * Nothing is injected when a bootstrap jar of this agent is already on the boot class path (CDS setup).
      *
      * @param inst Instrumentation instance
      * @param classNames Fully qualified class names to inject (e.g., "com.h2tg.rasp.bootstrap.RequestContext")
@@ -94,49 +416,28 @@ public class Agent {
         }
 
         try {
+            URL preloaded = findPreloadedBootstrapClasses(classNames);
+            if (preloaded != null) {
+                MicroLogger.info("BootstrapInject", "Bootstrap classes already on the boot class path: " + preloaded
+                        + " (JDK feature level " + JdkSupport.featureVersion() + ")");
+                return;
+            }
+
             MicroLogger.info("BootstrapInject", "Injecting " + classNames.length + " class(es) to Bootstrap ClassLoader...");
 
             // Create a temporary JAR to hold all bootstrap classes
             File tempDir = new File(System.getProperty("java.io.tmpdir"));
             File tempJar = File.createTempFile("rasp-bootstrap-", ".jar", tempDir);
             tempJar.deleteOnExit();
-
-            // Write all specified classes to the JAR
-            try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(tempJar))) {
-                for (String className : classNames) {
-                    // Convert class name to resource path (e.g., "com.foo.Bar" -> "com/foo/Bar.class")
-                    String resourcePath = className.replace('.', '/') + ".class";
-                    InputStream is = Agent.class.getClassLoader().getResourceAsStream(resourcePath);
-
-                    if (is == null) {
-                        MicroLogger.warn("BootstrapInject", "  - Cannot find " + className + " in classpath, skipping");
-                        continue;
-                    }
-
-                    try {
-                        // Create JAR entry
-                        JarEntry entry = new JarEntry(resourcePath);
-                        jos.putNextEntry(entry);
-
-                        // Copy class bytes
-                        byte[] buffer = new byte[4096];
-                        int bytesRead;
-                        while ((bytesRead = is.read(buffer)) != -1) {
-                            jos.write(buffer, 0, bytesRead);
-                        }
-
-                        jos.closeEntry();
-                        MicroLogger.info("BootstrapInject", "  - Added " + className);
-                    } finally {
-                        is.close();
-                    }
-                }
+            for (String className : writeBootstrapJar(tempJar, classNames)) {
+                MicroLogger.info("BootstrapInject", "  - Added " + className);
             }
 
             // Inject the JAR to Bootstrap ClassLoader
             inst.appendToBootstrapClassLoaderSearch(new JarFile(tempJar));
 
-            MicroLogger.info("BootstrapInject", "Bootstrap classes injected successfully");
+            MicroLogger.info("BootstrapInject", "Bootstrap classes injected successfully (JDK feature level "
+                    + JdkSupport.featureVersion() + ")");
             MicroLogger.info("BootstrapInject", "Temporary JAR: " + tempJar.getAbsolutePath());
         } catch (Exception e) {
             MicroLogger.error("BootstrapInject", "Failed to inject bootstrap classes", e);
@@ -144,34 +445,143 @@ public class Agent {
         }
     }
 
+    /**
+     * Write the bootstrap classes of this agent to a jar for -Xbootclasspath/a (see {@link Main}, "bootstrap" command).
+     * Appending to the boot class path at runtime disables CDS for every class outside the boot loader,
+     * a CDS archive covering the agent needs the bootstrap classes on the boot class path from JVM start.
+     * Multi-release classes are written in the variant of the running JDK, the jar belongs to one JDK like the archive.
+     *
+     * @param jar Target jar file
+     * @return Classes written
+     */
+    public static List<String> writeBootstrapJar(File jar) throws IOException {
+        return writeBootstrapJar(jar, BOOTSTRAP_CLASSES);
+    }
+
+    private static List<String> writeBootstrapJar(File jar, String... classNames) throws IOException {
+        List<String> written = new ArrayList<>();
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String className : classNames) {
+                // Convert class name to resource path (e.g., "com.foo.Bar" -> "com/foo/Bar.class")
+                String resourcePath = className.replace('.', '/') + ".class";
+                InputStream is = Agent.class.getClassLoader().getResourceAsStream(resourcePath);
+
+                if (is == null) {
+                    MicroLogger.warn("BootstrapInject", "  - Cannot find " + className + " in classpath, skipping");
+                    continue;
+                }
+
+                try {
+                    // Create JAR entry
+                    JarEntry entry = new JarEntry(resourcePath);
+                    jos.putNextEntry(entry);
+
+                    // Copy class bytes
+                    byte[] buffer = new byte[4096];
+                    int bytesRead;
+                    while ((bytesRead = is.read(buffer)) != -1) {
+                        jos.write(buffer, 0, bytesRead);
+                    }
+                    jos.closeEntry();
+                    written.add(className);
+                } finally {
+                    is.close();
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Locate bootstrap classes given on the boot class path at JVM start (-Xbootclasspath/a:MicroRASP-bootstrap.jar).
+     * They must be byte-identical to the classes in this agent jar: advice compiled against a newer build
+     * would call helper methods a stale jar does not have.
+     *
+     * @return Location of the first bootstrap class, null if the boot class path does not contain them
+     * @throws IllegalStateException if the boot class path holds bootstrap classes of another build or JDK
+     */
+    private static URL findPreloadedBootstrapClasses(String... classNames) throws IOException {
+        ClassLoader boot = ClassLoader.getSystemClassLoader().getParent();
+        URL first = boot.getResource(classNames[0].replace('.', '/') + ".class");
+        if (first == null) {
+            return null;
+        }
+        URL agentJar = Agent.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader agent = new URLClassLoader(new URL[]{agentJar}, null)) {
+            for (String className : classNames) {
+                String resourcePath = className.replace('.', '/') + ".class";
+                URL expected = agent.findResource(resourcePath);
+                URL actual = boot.getResource(resourcePath);
+                if (expected == null || actual == null || !Arrays.equals(readAll(expected), readAll(actual))) {
+                    throw new IllegalStateException("Bootstrap class " + className + " on the boot class path ("
+                            + actual + ") does not match this agent, regenerate the bootstrap jar and CDS archive");
+                }
+            }
+        }
+        return first;
+    }
+
+    private static byte[] readAll(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                out.write(buffer, 0, bytesRead);
+            }
+            return out.toByteArray();
+        }
+    }
+
     /**
      * Build the AgentBuilder with proper configuration
+     *
+     * @param loaderScope Widest defining loader scope of the registered hooks
+     * @param deferRetransformation Register the transformer without retransforming loaded classes (async install)
      */
-    private static AgentBuilder buildAgentBuilder() {
+    private static AgentBuilder buildAgentBuilder(HookHandler.LoaderScope loaderScope, boolean deferRetransformation) {
         // Disable type validation to allow instrumentation of JDK classes
         ByteBuddy byteBuddy = new ByteBuddy().with(TypeValidation.DISABLED);
 
-        // Build ignore matcher to avoid instrumenting our own code and dependencies
+        // Build ignore matcher to avoid instrumenting our own code and dependencies.
+        // Names only: a modifier matcher such as isSynthetic() would parse the class file of every loaded type
         ElementMatcher.Junction<net.bytebuddy.description.type.TypeDescription> ignoreMatcher =
                 nameStartsWith("net.bytebuddy.")
                 .or(nameStartsWith("org.reflections."))
                 .or(nameStartsWith("org.javassist."))
                 .or(nameStartsWith("com.h2tg.rasp."))
-                .or(nameStartsWith("java.util.logging."))
-                .or(ElementMatchers.isSynthetic());
+                .or(nameStartsWith("java.util.logging."));
+
+        // Loader-aware ignore, checked before any name: generated reflection accessors never host a hook target,
+        // and when every hook targets JDK classes no type of another loader needs to be looked at
+        ElementMatcher.Junction<ClassLoader> ignoreLoaders = ofType(
+                named("jdk.internal.reflect.DelegatingClassLoader").or(named("sun.reflect.DelegatingClassLoader")));
+        if (loaderScope != HookHandler.LoaderScope.ANY) {
+            ignoreLoaders = ignoreLoaders.or(not(HookRegistry.loaderMatcher(loaderScope)));
+        }
 
         // Create agent builder
         AgentBuilder builder = new AgentBuilder.Default(byteBuddy)
                 // Enable native method prefix for native method instrumentation
                 .enableNativeMethodPrefix("rasp_")
-                // Ignore specified packages
-                .ignore(ignoreMatcher)
+                // Ignore by defining loader first, then specified packages
+                .ignore(any(), ignoreLoaders)
+                .or(ignoreMatcher)
                 // Use retransformation strategy for already loaded classes
                 .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
+                // Async install: nothing is discovered at install, loaded targets are retransformed in the background
+                .with(deferRetransformation
+                        ? new AgentBuilder.RedefinitionStrategy.DiscoveryStrategy.Explicit()
+                        : AgentBuilder.RedefinitionStrategy.DiscoveryStrategy.SinglePass.INSTANCE)
+                // Time the retransformation of already loaded classes
+                .with(new HookListener.RetransformationListener())
+                // Retry failed batches split in halves, so one class that cannot be retransformed
+                // (native method prefix adds methods) does not leave the others of its batch unhooked
+                .with(AgentBuilder.RedefinitionStrategy.Listener.BatchReallocator.splitting())
                 // No-op initialization strategy for minimal intrusion
                 .with(AgentBuilder.InitializationStrategy.NoOp.INSTANCE)
-                // Add transformation listener
-                .with(new AgentBuilder.Listener.WithTransformationsOnly(new HookListener()));
+                // Add transformation listener (also feeds per-type timings to StartupProfiler)
+                .with(new HookListener());
 
         MicroLogger.info("AgentBuilder", "Agent builder configured successfully");
         return builder;
@@ -1,31 +1,116 @@
 package com.h2tg.rasp;
 
+import com.h2tg.rasp.core.RuleBenchmark;
+import com.h2tg.rasp.core.RuleSet;
+import net.bytebuddy.agent.ByteBuddyAgent;
+
+import java.io.File;
+
 /**
- * Main class for SteinsRASP.
- * This is just a placeholder - the actual functionality is in the Agent class.
+ * Attach CLI for MicroRASP.
+ * Loads the agent into a running JVM, or removes all hooks from it again.
  *
  * Usage:
- *   As Java Agent: java -javaagent:SteinsRASP.jar -jar your-app.jar
+ *   As Java Agent: java -javaagent:MicroRASP.jar -jar your-app.jar
+ *   Attach:        java -jar MicroRASP.jar attach <pid> [agentArgs]
+ *   Uninstall:     java -jar MicroRASP.jar uninstall <pid>
+ *   Rules:         java -jar MicroRASP.jar rules <file>   (validate, then benchmark interpreted vs compiled)
+ *   Swap rules:    java -jar MicroRASP.jar attach <pid> rules=<file>
+ *   Bootstrap jar: java -jar MicroRASP.jar bootstrap <jar>   (for -Xbootclasspath/a and CDS archives, see cds.sh)
  */
 public class Main {
+
     public static void main(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            if (args.length > 0 && !"help".equals(args[0])) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        String command = args[0];
+        if ("rules".equals(command)) {
+            System.exit(checkRules(args[1]) ? 0 : 1);
+            return;
+        }
+        if ("bootstrap".equals(command)) {
+            System.exit(writeBootstrapJar(args[1]) ? 0 : 1);
+            return;
+        }
+
+        String pid = args[1];
+        String agentArgs;
+        if ("attach".equals(command)) {
+            agentArgs = args.length > 2 ? args[2] : null;
+            if (Agent.UNINSTALL_COMMAND.equals(agentArgs)) {
+                System.err.println("[MicroRASP] Use the uninstall command instead of attach with \"" + agentArgs + "\"");
+                System.exit(1);
+                return;
+            }
+        } else if ("uninstall".equals(command)) {
+            agentArgs = Agent.UNINSTALL_COMMAND;
+        } else {
+            printUsage();
+            System.exit(1);
+            return;
+        }
+
+        try {
+            File agentJar = new File(Main.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            long start = System.nanoTime();
+            ByteBuddyAgent.attach(agentJar, pid, agentArgs);
+            System.out.println("[MicroRASP] " + command + " sent to JVM " + pid + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms, see the target's MicroRASP log for the result");
+        } catch (Throwable t) {
+            System.err.println("[MicroRASP] Failed to " + command + " JVM " + pid + ": " + t);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Parse, compile and benchmark a rule file without any target JVM
+     */
+    private static boolean checkRules(String path) {
+        try {
+            return RuleBenchmark.run(RuleSet.load(new File(path)), System.out);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[MicroRASP] Invalid rule: " + e.getMessage());
+        } catch (Throwable t) {
+            System.err.println("[MicroRASP] Failed to check rules " + path + ": " + t);
+        }
+        return false;
+    }
+
+    /**
+     * Write the bootstrap classes for -Xbootclasspath/a, in the variant of the running JDK
+     */
+    private static boolean writeBootstrapJar(String path) {
+        try {
+            int written = Agent.writeBootstrapJar(new File(path)).size();
+            System.out.println("[MicroRASP] Wrote " + written + " bootstrap class(es) to " + path
+                    + ", use with -Xbootclasspath/a:" + path + " on this JDK only");
+            return true;
+        } catch (Throwable t) {
+            System.err.println("[MicroRASP] Failed to write bootstrap jar " + path + ": " + t);
+            return false;
+        }
+    }
+
+    private static void printUsage() {
         System.out.println("╔═══════════════════════════════════════════════════════════╗");
-        System.out.println("║              SteinsRASP - Java RASP Solution             ║");
-        System.out.println("║                     Version 1.0-MVP                       ║");
+        System.out.println("║              MicroRASP - Java RASP Solution               ║");
         System.out.println("╚═══════════════════════════════════════════════════════════╝");
         System.out.println();
-        System.out.println("This is a Java Agent that must be loaded with -javaagent.");
-        System.out.println();
         System.out.println("Usage:");
-        System.out.println("  java -javaagent:SteinsRASP.jar -jar your-application.jar");
-        System.out.println();
-        System.out.println("Features:");
-        System.out.println("  ✓ Process execution monitoring and blocking");
-        System.out.println("  ✓ Native method instrumentation (Windows & Linux)");
-        System.out.println("  ✓ Detailed logging with stack traces");
-        System.out.println("  ✓ Configurable blacklist");
+        System.out.println("  java -javaagent:MicroRASP.jar -jar your-application.jar");
+        System.out.println("  java -jar MicroRASP.jar attach <pid> [agentArgs]   Install hooks into a running JVM");
+        System.out.println("  java -jar MicroRASP.jar uninstall <pid>            Remove all hooks and restore original bytecode");
+        System.out.println("  java -jar MicroRASP.jar rules <file>               Validate a rule file and benchmark it");
+        System.out.println("  java -jar MicroRASP.jar attach <pid> rules=<file>  Swap the rule set of a running agent");
+        System.out.println("  java -jar MicroRASP.jar bootstrap <jar>            Write the bootstrap classes for -Xbootclasspath/a (CDS)");
         System.out.println();
-//        System.out.println("For more information, visit: https://github.com/yourusername/SteinsRASP");
+        System.out.println("Use jps to find the pid of the target JVM.");
         System.out.println();
     }
 }
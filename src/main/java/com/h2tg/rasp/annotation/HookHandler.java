@@ -20,7 +20,7 @@ public @interface HookHandler {
     String hookMethod();
 
     /**
-     * Parameter types of the target method (use "*" for any)
+     * Parameter types of the target method (use "*" for any, an empty array for none)
      */
     String[] parameterTypes() default {"*"};
 
@@ -33,4 +33,43 @@ public @interface HookHandler {
      * Whether the target method is native
      */
     boolean isNative() default false;
+
+    /**
+     * Whether the handler is installed by dynamic attach only, in place of native hooks:
+     * retransforming an already loaded class cannot add the native method prefix wrappers,
+     * so attach skips native handlers and installs these non-native entry points instead
+     */
+    boolean attachOnly() default false;
+
+    /**
+     * Class loaders that can define the target class.
+     * Types defined by any other loader are skipped before name matching.
+     */
+    LoaderScope loaderScope() default LoaderScope.ANY;
+
+    /**
+     * RoutePolicy hook bit the handler protects, handlers of hooks outside the rasp.hooks profile are not installed.
+     * 0 for handlers every hook depends on (request context), which are always installed.
+     */
+    int hook() default 0;
+
+    /**
+     * Defining loader scope of a hook target
+     */
+    enum LoaderScope {
+        /**
+         * Any class loader (application and container classes)
+         */
+        ANY,
+
+        /**
+         * Bootstrap class loader only (java.base and other boot modules, rt.jar on JDK 8)
+         */
+        BOOTSTRAP,
+
+        /**
+         * Bootstrap or platform class loader (extension class loader on JDK 8)
+         */
+        PLATFORM
+    }
 }
@@ -0,0 +1,214 @@
+package com.h2tg.rasp.bootstrap;
+
+/**
+ * BodyScanner looks for attack indicators in request bodies while the application reads them (ServletInputStream),
+ * so a request can be tagged before its payload reaches a parser or sink.
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * The indicators are compiled once into an Aho-Corasick automaton folded into a flat transition table:
+ * one table lookup per byte, no copy and no buffering of the body. The automaton state is kept per request in
+ * RequestContext, so indicators split across read() calls are found. ASCII letters match case-insensitively.
+ * Scanning stops at the first indicator of a request.
+ */
+public class BodyScanner {
+
+    /**
+     * Indicator name followed by its patterns (bytes as ISO-8859-1 chars)
+     */
+    private static final String[][] indicators = {
+            {"java-serialization", "\u00ac\u00ed\u0000\u0005", "rO0AB", "aced0005"},
+            {"jndi-lookup", "${jndi:", "%24%7bjndi:", "$%7bjndi:"},
+            {"nested-lookup", "${${", "${lower:", "${upper:", "${::-"},
+            {"fastjson-autotype", "\"@type\""},
+            {"xml-entity", "<!entity"},
+            {"spring-classloader", "class.module.classloader"},
+            {"ognl-member-access", "#_memberaccess"},
+            {"runtime-exec", "java.lang.runtime", "java.lang.processbuilder"}
+    };
+
+    /**
+     * Automaton state when scanning stopped (indicator found or hook inactive for the route)
+     */
+    private static final int DONE = -1;
+
+    /**
+     * Transitions: table[state + byte] is the next state premultiplied by 256,
+     * or ~indicator when the byte completes a pattern
+     */
+    private static final int[] table;
+
+    static {
+        // Trie, rows of 256 entries, -1 for missing edges
+        java.util.List<int[]> trie = new java.util.ArrayList<>();
+        java.util.List<Integer> output = new java.util.ArrayList<>();
+        trie.add(newRow());
+        output.add(-1);
+        for (int i = 0; i < indicators.length; i++) {
+            for (int p = 1; p < indicators[i].length; p++) {
+                String pattern = indicators[i][p];
+                int state = 0;
+                for (int c = 0; c < pattern.length(); c++) {
+                    int b = fold(pattern.charAt(c) & 0xff);
+                    if (trie.get(state)[b] < 0) {
+                        trie.get(state)[b] = trie.size();
+                        trie.add(newRow());
+                        output.add(-1);
+                    }
+                    state = trie.get(state)[b];
+                }
+                output.set(state, i);
+            }
+        }
+
+        // Failure links folded into a full transition table (BFS order)
+        int[] fail = new int[trie.size()];
+        java.util.ArrayDeque<Integer> queue = new java.util.ArrayDeque<>();
+        int[] root = trie.get(0);
+        for (int b = 0; b < 256; b++) {
+            if (root[b] < 0) {
+                root[b] = 0;
+            } else {
+                fail[root[b]] = 0;
+                queue.add(root[b]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (output.get(state) < 0) {
+                output.set(state, output.get(fail[state]));
+            }
+            int[] row = trie.get(state);
+            for (int b = 0; b < 256; b++) {
+                int next = row[b];
+                if (next < 0) {
+                    row[b] = trie.get(fail[state])[b];
+                } else {
+                    fail[next] = trie.get(fail[state])[b];
+                    queue.add(next);
+                }
+            }
+        }
+
+        table = new int[trie.size() * 256];
+        for (int state = 0; state < trie.size(); state++) {
+            int[] row = trie.get(state);
+            for (int b = 0; b < 256; b++) {
+                int next = row[fold(b)];
+                table[state * 256 + b] = output.get(next) >= 0 ? ~output.get(next) : next * 256;
+            }
+        }
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[256];
+        java.util.Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int fold(int b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    /**
+     * Scan bytes returned by a read(byte[], int, int) of the current request's body.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param bytes Buffer passed to read
+     * @param offset Offset passed to read
+     * @param count Bytes read (return value of read)
+     * @return Indicator and its body offset when these bytes complete one, null otherwise
+     */
+    public static String scan(byte[] bytes, int offset, int count) {
+        if (bytes == null || count <= 0) {
+            return null;
+        }
+        RequestContext.Holder holder = RequestContext.holder();
+        int state = holder.bodyState;
+        if (state == DONE || holder.request == null) {
+            return null;
+        }
+        if (holder.policy == null || !RoutePolicy.isActive(holder.policy, RoutePolicy.BODY)) {
+            holder.bodyState = DONE;
+            return null;
+        }
+        int[] delta = table;
+        int end = offset + count;
+        int i = offset;
+        while (i < end) {
+            if (state == 0) {
+                // At the root the lookups of bytes that start no pattern do not depend on each other,
+                // a tight loop over them overlaps the loads instead of chaining their latency
+                while ((state = delta[bytes[i] & 0xff]) == 0 && ++i < end) {
+                }
+            } else {
+                state = delta[state + (bytes[i] & 0xff)];
+            }
+            if (state < 0) {
+                holder.bodyState = DONE;
+                return found(~state, holder.bodyRead + i - offset);
+            }
+            i++;
+        }
+        holder.bodyState = state;
+        holder.bodyRead += count;
+        return null;
+    }
+
+    /**
+     * Scan the byte returned by a single-byte read() of the current request's body.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param b Return value of read, -1 at the end of the body
+     * @return Indicator and its body offset when this byte completes one, null otherwise
+     */
+    public static String scan(int b) {
+        if (b < 0) {
+            return null;
+        }
+        RequestContext.Holder holder = RequestContext.holder();
+        int state = holder.bodyState;
+        if (state == DONE || holder.request == null) {
+            return null;
+        }
+        if (holder.policy == null || !RoutePolicy.isActive(holder.policy, RoutePolicy.BODY)) {
+            holder.bodyState = DONE;
+            return null;
+        }
+        state = table[state + (b & 0xff)];
+        if (state < 0) {
+            holder.bodyState = DONE;
+            return found(~state, holder.bodyRead);
+        }
+        holder.bodyState = state;
+        holder.bodyRead++;
+        return null;
+    }
+
+    private static String found(int indicator, long lastByte) {
+        return indicators[indicator][0] + " at byte " + lastByte;
+    }
+
+    /**
+     * Indicator names and patterns for the install log
+     */
+    public static java.util.List<String> describe() {
+        java.util.List<String> lines = new java.util.ArrayList<>();
+        for (String[] indicator : indicators) {
+            StringBuilder sb = new StringBuilder(indicator[0]).append(':');
+            for (int p = 1; p < indicator.length; p++) {
+                sb.append(' ');
+                for (int c = 0; c < indicator[p].length(); c++) {
+                    char ch = indicator[p].charAt(c);
+                    if (ch < 0x20 || ch > 0x7e) {
+                        sb.append(String.format("\\x%02x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+                }
+            }
+            lines.add(sb.toString());
+        }
+        lines.add(table.length / 256 + " automaton states, " + table.length * 4 / 1024 + " KB transition table");
+        return lines;
+    }
+}
@@ -0,0 +1,75 @@
+package com.h2tg.rasp.bootstrap;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DeserializeGuard is the shared deny engine for third-party deserializers
+ * (Jackson polymorphic typing, Fastjson autoType, XStream, Hessian).
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * Verdicts come from SerialHelper.checkDenyClass and are cached per resolved type name,
+ * so the steady-state path of the hot type resolution is a single map lookup. The cache is bounded
+ * and cleared when full, payloads cannot pin it with their own names.
+ */
+public class DeserializeGuard {
+
+    /**
+     * Upper bound of cached verdicts, type names come from untrusted input
+     */
+    private static final int MAX_CACHED_TYPES = 8192;
+
+    /**
+     * Cached verdict for allowed types
+     */
+    private static final String ALLOWED = "";
+
+    private static final ConcurrentHashMap<String, String> verdicts = new ConcurrentHashMap<>();
+
+    /**
+     * Check a type name resolved by a deserializer.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param typeName The type name from the payload (class name, array or JVM descriptor form)
+     * @return The matched deny pattern if dangerous, null otherwise
+     */
+    public static String checkType(String typeName) {
+        if (typeName == null) {
+            return null;
+        }
+        String verdict = verdicts.get(typeName);
+        if (verdict == null) {
+            verdict = evaluate(typeName);
+            if (verdicts.size() >= MAX_CACHED_TYPES) {
+                // Full, typically of attacker-chosen names: start over, the types the application uses come back first
+                verdicts.clear();
+            }
+            verdicts.putIfAbsent(typeName, verdict);
+        }
+        return verdict == ALLOWED ? null : verdict;
+    }
+
+    /**
+     * Uncached check: normalize "[Lcom.foo.Bar;" / "Lcom.foo.Bar;" forms and consult the deny list.
+     * Stripped repeatedly, as Fastjson's TypeUtils.loadClass does ("LLcom.foo.Bar;;", "[[Lcom.foo.Bar;")
+     */
+    private static String evaluate(String typeName) {
+        int start = 0;
+        int end = typeName.length();
+        boolean stripped;
+        do {
+            stripped = false;
+            while (start < end && typeName.charAt(start) == '[') {
+                start++;
+                stripped = true;
+            }
+            if (end - start > 2 && typeName.charAt(start) == 'L' && typeName.charAt(end - 1) == ';') {
+                start++;
+                end--;
+                stripped = true;
+            }
+        } while (stripped);
+        String className = start == 0 && end == typeName.length() ? typeName : typeName.substring(start, end);
+        String matched = SerialHelper.checkDenyClass(className.replace('/', '.'));
+        return matched != null ? matched : ALLOWED;
+    }
+}
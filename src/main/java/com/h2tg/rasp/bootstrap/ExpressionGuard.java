@@ -0,0 +1,360 @@
+package com.h2tg.rasp.bootstrap;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ExpressionGuard analyzes SpEL, OGNL and MVEL expressions at parse time for
+ * dangerous type references, reflective invocation and runtime/process access.
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * The token stream of an expression is scanned once, string literals skipped, and the verdict is
+ * cached per language and expression text: templates and bindings parse the same expressions
+ * over and over, so the steady-state path is a single map lookup.
+ */
+public class ExpressionGuard {
+
+    /**
+     * Expression languages
+     */
+    public static final int SPEL = 0;
+    public static final int OGNL = 1;
+    public static final int MVEL = 2;
+
+    /**
+     * Upper bound of cached verdicts per language, expressions may come from untrusted input
+     */
+    private static final int MAX_CACHED_EXPRESSIONS = 4096;
+
+    /**
+     * Longest expression text printed in events
+     */
+    private static final int MAX_LOGGED_LENGTH = 256;
+
+    /**
+     * Cached verdict for safe expressions
+     */
+    private static final String ALLOWED = "";
+
+    /**
+     * Dangerous types and packages, matched as prefix of qualified names and string literals
+     */
+    private static final String[] denyTypes = {
+            "java.lang.Runtime",
+            "java.lang.ProcessBuilder",
+            "java.lang.ProcessImpl",
+            "java.lang.UNIXProcess",
+            "java.lang.ClassLoader",
+            "java.lang.Thread",
+            "java.lang.reflect.",
+            "java.lang.invoke.",
+            "java.net.URLClassLoader",
+            "java.io.File",
+            "java.nio.file.",
+            "javax.script.",
+            "javax.naming.",
+            "jdk.",
+            "sun.",
+            "com.sun.",
+            "org.springframework.cglib.core.ReflectUtils",
+            "org.springframework.util.ReflectionUtils",
+            "ognl.",
+            "com.opensymphony.xwork2.",
+            "org.apache.struts2.",
+            "org.mvel2."
+    };
+
+    /**
+     * java.lang types reachable without package: T(Runtime) in SpEL, @Runtime@ in OGNL, auto-imported in MVEL
+     */
+    private static final String[] denyLangTypes = {
+            "Runtime", "ProcessBuilder", "ClassLoader", "Thread"
+    };
+
+    /**
+     * Reflective, class loading and runtime access members
+     */
+    private static final String[] denyMembers = {
+            "forName", "getClassLoader", "classLoader", "loadClass", "defineClass",
+            "getMethod", "getMethods", "getDeclaredMethod", "getDeclaredMethods",
+            "getConstructor", "getConstructors", "getDeclaredConstructor", "getDeclaredConstructors",
+            "getField", "getDeclaredField", "getDeclaredFields", "setAccessible",
+            "invoke", "invokeExact", "newInstance",
+            "getRuntime", "exec", "loadLibrary", "setSecurityManager",
+            "getEngineByName", "getEngineByExtension",
+            "_memberAccess", "DEFAULT_MEMBER_ACCESS", "excludedClasses", "excludedPackageNames"
+    };
+
+    /**
+     * Cached verdicts per language
+     */
+    private static final ConcurrentHashMap<String, String> spelVerdicts = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, String> ognlVerdicts = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, String> mvelVerdicts = new ConcurrentHashMap<>();
+
+    /**
+     * Check an expression about to be parsed or compiled.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param language SPEL, OGNL or MVEL
+     * @param expression Expression text
+     * @return Description of the dangerous construct, null if the expression is safe
+     */
+    public static String check(int language, String expression) {
+        if (expression == null) {
+            return null;
+        }
+        ConcurrentHashMap<String, String> cache = verdicts(language);
+        String verdict = cache.get(expression);
+        if (verdict == null) {
+            verdict = evaluate(language, expression);
+            if (cache.size() >= MAX_CACHED_EXPRESSIONS) {
+                // Full, typically of attacker-chosen expressions: start over, the application's own come back first
+                cache.clear();
+            }
+            cache.putIfAbsent(expression, verdict);
+        }
+        return verdict == ALLOWED ? null : verdict;
+    }
+
+    private static ConcurrentHashMap<String, String> verdicts(int language) {
+        switch (language) {
+            case OGNL:
+                return ognlVerdicts;
+            case MVEL:
+                return mvelVerdicts;
+            default:
+                return spelVerdicts;
+        }
+    }
+
+    /**
+     * Expression text for MVEL entry points, which take String or char[]
+     */
+    public static String text(Object expression) {
+        if (expression instanceof String) {
+            return (String) expression;
+        }
+        if (expression instanceof char[]) {
+            return new String((char[]) expression);
+        }
+        return null;
+    }
+
+    /**
+     * Expression text shortened for event output
+     */
+    public static String abbreviate(String expression) {
+        if (expression == null || expression.length() <= MAX_LOGGED_LENGTH) {
+            return expression;
+        }
+        return expression.substring(0, MAX_LOGGED_LENGTH) + "...(" + expression.length() + " chars)";
+    }
+
+    /**
+     * Uncached check: tokenize and inspect qualified names, type references and string literals
+     */
+    private static String evaluate(int language, String expression) {
+        String source = expression;
+        if (language != SPEL && source.indexOf("\\u") >= 0) {
+            // OGNL and MVEL accept unicode escapes in identifiers (#_memberAccess)
+            source = unescape(source);
+        }
+
+        int length = source.length();
+        int i = 0;
+        // Previous significant token: T( in SpEL, '@' in OGNL, "new" make the next name a type reference
+        boolean typeContext = false;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            if (c == '\'' || c == '"') {
+                // SpEL escapes a quote by doubling it and has no backslash escapes, OGNL and MVEL use backslash escapes
+                int end = i + 1;
+                boolean doubled = false;
+                while (end < length) {
+                    char ch = source.charAt(end);
+                    if (ch == c) {
+                        if (language != SPEL || end + 1 >= length || source.charAt(end + 1) != c) {
+                            break;
+                        }
+                        doubled = true;
+                        end += 2;
+                    } else {
+                        end += ch == '\\' && language != SPEL ? 2 : 1;
+                    }
+                }
+                String literal = source.substring(i + 1, Math.min(end, length));
+                if (doubled) {
+                    literal = literal.replace(String.valueOf(c) + c, String.valueOf(c));
+                }
+                String type = isQualifiedName(literal) ? matchType(literal) : null;
+                if (type != null) {
+                    return "type name literal " + type;
+                }
+                i = end + 1;
+                typeContext = false;
+                continue;
+            }
+
+            if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                i = identifierEnd(source, i);
+                String first = source.substring(start, i);
+                // Qualified name, the tokenizers allow whitespace around the dots (java. lang. Runtime)
+                StringBuilder qualified = null;
+                while (true) {
+                    int dot = skipWhitespace(source, i);
+                    if (dot >= length || source.charAt(dot) != '.') {
+                        break;
+                    }
+                    int next = skipWhitespace(source, dot + 1);
+                    if (next >= length || !Character.isJavaIdentifierStart(source.charAt(next))) {
+                        break;
+                    }
+                    i = identifierEnd(source, next);
+                    if (qualified == null) {
+                        qualified = new StringBuilder(first);
+                    }
+                    qualified.append('.').append(source, next, i);
+                }
+                String name = qualified != null ? qualified.toString() : first;
+
+                if ("new".equals(name)) {
+                    typeContext = true;
+                    continue;
+                }
+                if (language == SPEL && "T".equals(name) && nextSignificant(source, i) == '(') {
+                    typeContext = true;
+                    continue;
+                }
+
+                String type = matchType(name);
+                if (type == null && (typeContext || language == MVEL)) {
+                    type = matchLangType(first);
+                }
+                if (type != null) {
+                    return "type reference " + type;
+                }
+
+                for (int s = 0; s < name.length(); ) {
+                    int e = name.indexOf('.', s);
+                    if (e < 0) {
+                        e = name.length();
+                    }
+                    String member = matchMember(name.substring(s, e));
+                    if (member != null) {
+                        return "reflective or runtime access " + member;
+                    }
+                    s = e + 1;
+                }
+                typeContext = false;
+                continue;
+            }
+
+            if (c == '@' && language == OGNL) {
+                // @class@member: static access
+                typeContext = true;
+                i++;
+                continue;
+            }
+            if (c == '(' && typeContext) {
+                // T( keeps the context for the following name
+                i++;
+                continue;
+            }
+            typeContext = false;
+            i++;
+        }
+        return ALLOWED;
+    }
+
+    private static int identifierEnd(String source, int i) {
+        i++;
+        while (i < source.length() && Character.isJavaIdentifierPart(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String source, int i) {
+        while (i < source.length() && Character.isWhitespace(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static char nextSignificant(String source, int i) {
+        i = skipWhitespace(source, i);
+        return i < source.length() ? source.charAt(i) : 0;
+    }
+
+    /**
+     * Literal shaped like a class name with a package (Class.forName('java.lang.Runtime'), #context['ognl...'])
+     */
+    private static boolean isQualifiedName(String literal) {
+        int dots = 0;
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c == '.') {
+                dots++;
+            } else if (!Character.isJavaIdentifierPart(c)) {
+                return false;
+            }
+        }
+        return dots >= 2;
+    }
+
+    private static String matchType(String name) {
+        for (String type : denyTypes) {
+            if (name.startsWith(type)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static String matchLangType(String name) {
+        for (String type : denyLangTypes) {
+            if (type.equals(name)) {
+                return "java.lang." + type;
+            }
+        }
+        return null;
+    }
+
+    private static String matchMember(String name) {
+        for (String member : denyMembers) {
+            if (member.equals(name)) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decode \\uXXXX escapes, malformed escapes are kept as is
+     */
+    private static String unescape(String source) {
+        StringBuilder sb = new StringBuilder(source.length());
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\\' && i + 5 < source.length() && source.charAt(i + 1) == 'u') {
+                try {
+                    sb.append((char) Integer.parseInt(source.substring(i + 2, i + 6), 16));
+                    i += 6;
+                    continue;
+                } catch (NumberFormatException e) {
+                    // not an escape
+                }
+            }
+            sb.append(c);
+            i++;
+        }
+        return sb.toString();
+    }
+}
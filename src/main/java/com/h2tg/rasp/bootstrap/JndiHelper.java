@@ -28,6 +28,189 @@ public class JndiHelper {
             "com.mchange.v2.c3p0."
     };
 
+    /**
+     * URL schemes whose naming providers open a network connection on lookup
+     */
+    public static final String[] remoteSchemes = {
+            "ldap",
+            "ldaps",
+            "rmi",
+            "iiop",
+            "iiopname",
+            "corbaname",
+            "dns",
+            "nis"
+    };
+
+    /**
+     * Allowed naming provider hosts ("host" or "host:port"), from system property rasp.jndi.allow (comma separated).
+     * Loopback addresses are always allowed.
+     */
+    public static final String ALLOW_PROPERTY = "rasp.jndi.allow";
+
+    private static final String[] allowHosts;
+    private static final int[] allowPorts;
+
+    static {
+        String configured = System.getProperty(ALLOW_PROPERTY, "");
+        String[] entries = ("localhost,127.0.0.1,::1," + configured).split(",");
+        java.util.List<String> hosts = new java.util.ArrayList<>();
+        java.util.List<Integer> ports = new java.util.ArrayList<>();
+        for (String entry : entries) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int port = -1;
+            int colon = entry.lastIndexOf(':');
+            // "host:port", but not a bare IPv6 address
+            if (colon > 0 && entry.indexOf(':') == colon) {
+                try {
+                    port = Integer.parseInt(entry.substring(colon + 1));
+                    entry = entry.substring(0, colon);
+                } catch (NumberFormatException ignored) {
+                    // Keep the whole entry as host
+                }
+            }
+            if (entry.startsWith("[") && entry.endsWith("]")) {
+                entry = entry.substring(1, entry.length() - 1);
+            }
+            hosts.add(entry);
+            ports.add(port);
+        }
+        allowHosts = hosts.toArray(new String[0]);
+        allowPorts = new int[ports.size()];
+        for (int i = 0; i < allowPorts.length; i++) {
+            allowPorts[i] = ports.get(i);
+        }
+    }
+
+    /**
+     * Check a name passed to InitialContext.lookup/lookupLink before any provider is contacted.
+     * Parses scheme, host and port in place (no substring or allocation).
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param name The JNDI name (plain or URL form)
+     * @return The matched remote scheme if the name targets a non-allowed host, null otherwise
+     */
+    public static String checkLookupName(String name) {
+        if (name == null) {
+            return null;
+        }
+        // Fast path for java:comp/env and other local names
+        if (name.startsWith("java:")) {
+            return null;
+        }
+
+        int length = name.length();
+        int colon = -1;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c == ':') {
+                colon = i;
+                break;
+            }
+            boolean schemeChar = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                    || (i > 0 && ((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.'));
+            if (!schemeChar) {
+                // Not a URL name (relative composite name)
+                return null;
+            }
+        }
+        if (colon <= 0) {
+            return null;
+        }
+
+        String scheme = null;
+        for (String remote : remoteSchemes) {
+            if (remote.length() == colon && name.regionMatches(true, 0, remote, 0, colon)) {
+                scheme = remote;
+                break;
+            }
+        }
+        if (scheme == null) {
+            return null;
+        }
+
+        // Authority: "//host[:port]", anything else resolves against the default provider
+        int authority = colon + 1;
+        if (!name.startsWith("//", authority)) {
+            return scheme;
+        }
+        authority += 2;
+        // Parsed like the JDK URL parser (com.sun.jndi.toolkit.url.Uri): the authority ends at '/' only.
+        // '#', '?', userinfo or a backslash inside it would make the checked host differ from the host
+        // the provider connects to (ldap://127.0.0.1#evil.com:1389/a), such names are never allowed
+        int authorityEnd = authority;
+        while (authorityEnd < length) {
+            char c = name.charAt(authorityEnd);
+            if (c == '/') {
+                break;
+            }
+            if (c == '#' || c == '?' || c == '@' || c == '\\') {
+                return scheme;
+            }
+            authorityEnd++;
+        }
+        int hostStart = authority;
+        int hostEnd;
+        int port = -1;
+        if (hostStart < authorityEnd && name.charAt(hostStart) == '[') {
+            int close = name.indexOf(']', hostStart);
+            if (close < 0 || close >= authorityEnd) {
+                return scheme;
+            }
+            hostStart++;
+            hostEnd = close;
+            if (close + 1 < authorityEnd && name.charAt(close + 1) == ':') {
+                port = parsePort(name, close + 2, authorityEnd);
+            }
+        } else {
+            int portColon = name.indexOf(':', hostStart);
+            if (portColon >= 0 && portColon < authorityEnd) {
+                hostEnd = portColon;
+                port = parsePort(name, portColon + 1, authorityEnd);
+            } else {
+                hostEnd = authorityEnd;
+            }
+        }
+        if (hostStart == hostEnd) {
+            // Empty host: provider default (e.g. ldap:///dc=x uses the configured server)
+            return null;
+        }
+        if (port == -2) {
+            return scheme;
+        }
+
+        int hostLength = hostEnd - hostStart;
+        for (int i = 0; i < allowHosts.length; i++) {
+            String host = allowHosts[i];
+            if (host.length() == hostLength
+                    && name.regionMatches(true, hostStart, host, 0, hostLength)
+                    && (allowPorts[i] < 0 || allowPorts[i] == port)) {
+                return null;
+            }
+        }
+        return scheme;
+    }
+
+    /**
+     * Parse a decimal port in [start, end), -1 if empty, -2 if malformed
+     */
+    private static int parsePort(String name, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        int port = 0;
+        for (int i = start; i < end; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9' || port > 65535) {
+                return -2;
+            }
+            port = port * 10 + (c - '0');
+        }
+        return port;
+    }
 
     public static String getFactoryLocation(Class<?> refClass, Object ref) {
         try {
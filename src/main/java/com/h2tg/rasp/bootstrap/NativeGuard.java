@@ -0,0 +1,242 @@
+package com.h2tg.rasp.bootstrap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NativeGuard decides whether a native library may be loaded (JNI allowlist).
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * Libraries under the JDK home and under allowlisted paths are accepted by canonical path alone, without touching the file.
+ * Any other library is accepted only when its SHA-256 digest is allowlisted, either for one path or anywhere
+ * (libraries extracted to temp directories under random names, such as netty-tcnative or RocksDB).
+ * Digests are computed over a read-only mapping of the file and cached per path with the size, mtime and
+ * file key (device and inode) they were computed for, so each library is hashed once per JVM unless it is replaced.
+ *
+ * Format: -Drasp.jni.allow=entry,... with entry "/dir/" (everything below), "/path/lib.so" (that file),
+ * "/path/lib.so=sha256" (that file with that content) or "sha256:hex" (that content anywhere).
+ */
+public class NativeGuard {
+
+    public static final String ALLOW_PROPERTY = "rasp.jni.allow";
+
+    /**
+     * Upper bound of cached digests, library paths can come from untrusted input
+     */
+    private static final int MAX_CACHED_LIBRARIES = 1024;
+
+    private static final String DIGEST_PREFIX = "sha256:";
+
+    /**
+     * Allowed directories (canonical, ending with the separator), the JDK home first
+     */
+    private static final List<String> directories = new ArrayList<>();
+
+    /**
+     * Allowed files (canonical path) mapped to their pinned digest, "" when any content is allowed
+     */
+    private static final Map<String, String> files = new HashMap<>();
+
+    /**
+     * Digests allowed at any path (lowercase hex)
+     */
+    private static final Set<String> digests = new HashSet<>();
+
+    private static final ConcurrentHashMap<String, Stamp> stamps = new ConcurrentHashMap<>();
+
+    static {
+        String home = System.getProperty("java.home");
+        if (home != null) {
+            directories.add(directory(canonical(home)));
+        }
+        for (String entry : System.getProperty(ALLOW_PROPERTY, "").split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            if (entry.regionMatches(true, 0, DIGEST_PREFIX, 0, DIGEST_PREFIX.length())) {
+                String digest = entry.substring(DIGEST_PREFIX.length()).trim().toLowerCase(java.util.Locale.ROOT);
+                if (isDigest(digest)) {
+                    digests.add(digest);
+                } else {
+                    System.err.println("[MicroRASP] Ignoring invalid JNI digest \"" + entry + "\"");
+                }
+                continue;
+            }
+            int equals = entry.lastIndexOf('=');
+            String digest = equals < 0 ? "" : entry.substring(equals + 1).trim().toLowerCase(java.util.Locale.ROOT);
+            String path = equals < 0 ? entry : entry.substring(0, equals).trim();
+            if (!digest.isEmpty() && !isDigest(digest)) {
+                System.err.println("[MicroRASP] Ignoring invalid JNI allowlist entry \"" + entry + "\"");
+                continue;
+            }
+            if (path.endsWith("/") || path.endsWith(File.separator)) {
+                directories.add(directory(canonical(path)));
+            } else {
+                files.put(canonical(path), digest);
+            }
+        }
+    }
+
+    /**
+     * Check a library about to be loaded.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param name Canonical library path
+     * @return Digest and reason of a refused library, null if it is allowed or does not exist
+     */
+    public static String check(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        for (String directory : directories) {
+            if (name.startsWith(directory)) {
+                return null;
+            }
+        }
+        String pinned = files.get(name);
+        if (pinned != null && pinned.isEmpty()) {
+            return null;
+        }
+        String digest = digest(name);
+        if (digest == null) {
+            return null;
+        }
+        if (digest.equals(pinned) || digests.contains(digest)) {
+            return null;
+        }
+        return DIGEST_PREFIX + digest + (pinned != null ? " does not match the pinned digest" : " not in " + ALLOW_PROPERTY);
+    }
+
+    /**
+     * Check a library file as found on the library path (JDK 8-14 ClassLoader.loadLibrary0),
+     * canonicalized first so ".." and links cannot reach into an allowed directory
+     */
+    public static String check(File file) {
+        return file != null ? check(canonical(file.getPath())) : null;
+    }
+
+    /**
+     * Allowed directories, files and digests for the install log
+     */
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (String directory : directories) {
+            lines.add("allow " + directory);
+        }
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            lines.add("allow " + file.getKey() + (file.getValue().isEmpty() ? "" : " if " + DIGEST_PREFIX + file.getValue()));
+        }
+        for (String digest : digests) {
+            lines.add("allow " + DIGEST_PREFIX + digest);
+        }
+        return lines;
+    }
+
+    /**
+     * SHA-256 of a library, cached while size, mtime and file key are unchanged
+     *
+     * @return Lowercase hex digest, null if the file cannot be read (nothing will be loaded from it)
+     */
+    private static String digest(String name) {
+        try {
+            Path path = Paths.get(name);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            Object key = attributes.fileKey();
+            Stamp stamp = stamps.get(name);
+            if (stamp != null && stamp.size == size && stamp.modified == modified
+                    && (key == null ? stamp.key == null : key.equals(stamp.key))) {
+                return stamp.digest;
+            }
+
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long position = 0;
+                long length = channel.size();
+                while (position < length) {
+                    long chunk = Math.min(length - position, Integer.MAX_VALUE);
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+                    sha256.update(mapped);
+                    position += chunk;
+                }
+            }
+            String digest = hex(sha256.digest());
+            if (stamps.size() < MAX_CACHED_LIBRARIES || stamps.containsKey(name)) {
+                stamps.put(name, new Stamp(size, modified, key, digest));
+            }
+            return digest;
+        } catch (IOException e) {
+            return null;
+        } catch (Exception e) {
+            // No SHA-256 provider or unmappable file: refuse rather than load unverified code
+            return "unverifiable";
+        }
+    }
+
+    private static String canonical(String path) {
+        try {
+            return new File(path).getCanonicalPath();
+        } catch (IOException e) {
+            return new File(path).getAbsolutePath();
+        }
+    }
+
+    private static String directory(String path) {
+        return path.endsWith(File.separator) ? path : path + File.separator;
+    }
+
+    private static boolean isDigest(String s) {
+        if (s.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.digit(s.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xf, 16);
+            chars[2 * i + 1] = Character.forDigit(bytes[i] & 0xf, 16);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Digest of a library file and the file state it was computed for
+     */
+    static class Stamp {
+        final long size;
+        final long modified;
+        final Object key;
+        final String digest;
+
+        Stamp(long size, long modified, Object key, String digest) {
+            this.size = size;
+            this.modified = modified;
+            this.key = key;
+            this.digest = digest;
+        }
+    }
+}
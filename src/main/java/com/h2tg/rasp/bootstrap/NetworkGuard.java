@@ -0,0 +1,327 @@
+package com.h2tg.rasp.bootstrap;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NetworkGuard decides whether an outbound connection targets a denied address range (SSRF protection).
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * Deny and allow CIDRs are compiled once into a compressed binary radix tree over 128-bit keys
+ * (IPv4 mapped to ::ffff:0:0/96), the longest matching prefix decides. The tree is immutable,
+ * so a lookup is a lock-free walk of at most one node per branching prefix and does not allocate for IPv4.
+ * Host names checked before resolution (HttpURLConnection) are cached with a TTL.
+ *
+ * Defaults deny only cloud metadata and unspecified/link-local ranges, private and loopback ranges
+ * are reached legitimately by pooled database/cache connections during requests and must be denied explicitly:
+ * -Drasp.ssrf.deny=10.0.0.0/8,127.0.0.0/8 -Drasp.ssrf.allow=10.1.2.0/24
+ */
+public class NetworkGuard {
+
+    public static final String DENY_PROPERTY = "rasp.ssrf.deny";
+    public static final String ALLOW_PROPERTY = "rasp.ssrf.allow";
+    public static final String TTL_PROPERTY = "rasp.ssrf.ttl";
+
+    private static final String[] DEFAULT_DENY = {
+            "0.0.0.0/8",
+            "169.254.0.0/16",
+            "100.100.100.200/32",
+            "fe80::/10",
+            "fd00:ec2::254/128",
+            "::/128"
+    };
+
+    /**
+     * Upper bound of cached host verdicts, host names come from untrusted input
+     */
+    private static final int MAX_CACHED_HOSTS = 4096;
+
+    /**
+     * Cached verdict for allowed hosts
+     */
+    private static final String ALLOWED = "";
+
+    private static final Node root = new Node(0L, 0L, 0);
+
+    private static final long ttlNanos;
+
+    private static final ConcurrentHashMap<String, HostVerdict> hosts = new ConcurrentHashMap<>();
+
+    private static final java.util.List<String> ranges = new java.util.ArrayList<>();
+
+    static {
+        for (String cidr : DEFAULT_DENY) {
+            add(cidr, false);
+        }
+        for (String cidr : System.getProperty(DENY_PROPERTY, "").split(",")) {
+            add(cidr.trim(), false);
+        }
+        for (String cidr : System.getProperty(ALLOW_PROPERTY, "").split(",")) {
+            add(cidr.trim(), true);
+        }
+        long ttl = 30;
+        try {
+            ttl = Long.parseLong(System.getProperty(TTL_PROPERTY, "30").trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[MicroRASP] Ignoring invalid " + TTL_PROPERTY + ": " + e.getMessage());
+        }
+        ttlNanos = ttl * 1_000_000_000L;
+    }
+
+    /**
+     * Check a resolved destination address.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @return The matched deny CIDR, null if the address is allowed or unresolved
+     */
+    public static String checkAddress(InetAddress address) {
+        if (address == null) {
+            return null;
+        }
+        if (address instanceof Inet4Address) {
+            // Inet4Address.hashCode() is the address itself, getAddress() would clone an array
+            return lookup(0L, 0xffffL << 32 | (address.hashCode() & 0xffffffffL));
+        }
+        byte[] bytes = address.getAddress();
+        return lookup(toLong(bytes, 0), toLong(bytes, 8));
+    }
+
+    /**
+     * Check a connect endpoint, null for unresolved or non-IP socket addresses
+     */
+    public static String checkEndpoint(Object endpoint) {
+        if (!(endpoint instanceof InetSocketAddress)) {
+            return null;
+        }
+        return checkAddress(((InetSocketAddress) endpoint).getAddress());
+    }
+
+    /**
+     * Check a host name before connecting (URL host, possibly routed through a proxy).
+     * Every resolved address is checked, the verdict is cached per host for rasp.ssrf.ttl seconds.
+     *
+     * @return Description of the denied address, null if allowed or the host cannot be resolved
+     */
+    public static String checkHost(String host) {
+        if (host == null || host.isEmpty()) {
+            return null;
+        }
+        long now = System.nanoTime();
+        HostVerdict cached = hosts.get(host);
+        if (cached != null && now - cached.resolvedAt < ttlNanos) {
+            return cached.verdict == ALLOWED ? null : cached.verdict;
+        }
+
+        String verdict = ALLOWED;
+        try {
+            String name = host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+            for (InetAddress address : InetAddress.getAllByName(name)) {
+                String cidr = checkAddress(address);
+                if (cidr != null) {
+                    verdict = address.getHostAddress() + " in " + cidr;
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            // Unresolvable: the connection attempt fails on its own
+            return null;
+        }
+        if (cached != null || hosts.size() < MAX_CACHED_HOSTS) {
+            hosts.put(host, new HostVerdict(verdict, now));
+        }
+        return verdict == ALLOWED ? null : verdict;
+    }
+
+    /**
+     * Rule subject of a connect endpoint ("host/address:port"), null when no rules are loaded
+     */
+    public static String subject(Object endpoint) {
+        if (RuleEngine.getMatcher() == null || endpoint == null) {
+            return null;
+        }
+        return endpoint.toString();
+    }
+
+    public static java.util.List<String> describe() {
+        return java.util.Collections.unmodifiableList(ranges);
+    }
+
+    /**
+     * Longest-prefix match over the radix tree
+     */
+    private static String lookup(long hi, long lo) {
+        String matched = null;
+        Node node = root;
+        while (node != null) {
+            if (commonPrefix(node.hi, node.lo, hi, lo) < node.length) {
+                break;
+            }
+            if (node.cidr != null) {
+                matched = node.allow ? null : node.cidr;
+            }
+            if (node.length == 128) {
+                break;
+            }
+            node = bit(hi, lo, node.length) == 0 ? node.zero : node.one;
+        }
+        return matched;
+    }
+
+    private static void add(String cidr, boolean allow) {
+        if (cidr.isEmpty()) {
+            return;
+        }
+        try {
+            int slash = cidr.indexOf('/');
+            String host = slash < 0 ? cidr : cidr.substring(0, slash);
+            if (!isAddressLiteral(host)) {
+                throw new IllegalArgumentException("not an IP address");
+            }
+            byte[] bytes = InetAddress.getByName(host).getAddress();
+            long hi;
+            long lo;
+            int length;
+            if (bytes.length == 4) {
+                hi = 0L;
+                lo = 0xffffL << 32 | (toLong(bytes, 0) >>> 32);
+                length = 96 + (slash < 0 ? 32 : Integer.parseInt(cidr.substring(slash + 1)));
+            } else {
+                hi = toLong(bytes, 0);
+                lo = toLong(bytes, 8);
+                length = slash < 0 ? 128 : Integer.parseInt(cidr.substring(slash + 1));
+            }
+            if (length < 0 || length > 128 || (bytes.length == 4 && length < 96)) {
+                throw new IllegalArgumentException("invalid prefix length");
+            }
+            insert(hi & mask(length, 0), lo & mask(length, 64), length, cidr, allow);
+            ranges.add((allow ? "allow " : "deny ") + cidr);
+        } catch (Exception e) {
+            System.err.println("[MicroRASP] Ignoring invalid SSRF range \"" + cidr + "\": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Insert a prefix, splitting the compressed edge where the new prefix diverges
+     */
+    private static void insert(long hi, long lo, int length, String cidr, boolean allow) {
+        Node node = root;
+        while (true) {
+            int branch = node.length;
+            if (length == branch) {
+                node.cidr = cidr;
+                node.allow = allow;
+                return;
+            }
+            boolean one = bit(hi, lo, branch) == 1;
+            Node child = one ? node.one : node.zero;
+            if (child == null) {
+                Node leaf = new Node(hi, lo, length);
+                leaf.cidr = cidr;
+                leaf.allow = allow;
+                node.set(one, leaf);
+                return;
+            }
+            int common = Math.min(Math.min(commonPrefix(child.hi, child.lo, hi, lo), child.length), length);
+            if (common == child.length) {
+                node = child;
+                continue;
+            }
+            // Split: intermediate node at the divergence point
+            Node split = new Node(hi & mask(common, 0), lo & mask(common, 64), common);
+            split.set(bit(child.hi, child.lo, common) == 1, child);
+            node.set(one, split);
+            node = split;
+        }
+    }
+
+    private static int commonPrefix(long aHi, long aLo, long bHi, long bLo) {
+        if (aHi != bHi) {
+            return Long.numberOfLeadingZeros(aHi ^ bHi);
+        }
+        return aLo != bLo ? 64 + Long.numberOfLeadingZeros(aLo ^ bLo) : 128;
+    }
+
+    private static int bit(long hi, long lo, int index) {
+        return (int) (index < 64 ? hi >>> (63 - index) : lo >>> (127 - index)) & 1;
+    }
+
+    /**
+     * Mask of the first length bits, for the 64-bit word starting at bit offset
+     */
+    private static long mask(int length, int offset) {
+        int bits = length - offset;
+        if (bits <= 0) {
+            return 0L;
+        }
+        return bits >= 64 ? -1L : -1L << (64 - bits);
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value <<= 8;
+            if (offset + i < bytes.length) {
+                value |= bytes[offset + i] & 0xff;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Only literals are accepted in ranges, InetAddress.getByName must not trigger a DNS lookup at startup
+     */
+    private static boolean isAddressLiteral(String host) {
+        if (host.indexOf(':') >= 0) {
+            return true;
+        }
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return !host.isEmpty();
+    }
+
+    /**
+     * Radix tree node: the first length bits of (hi, lo) are the prefix, cidr is set for configured ranges
+     */
+    static class Node {
+        final long hi;
+        final long lo;
+        final int length;
+        String cidr;
+        boolean allow;
+        Node zero;
+        Node one;
+
+        Node(long hi, long lo, int length) {
+            this.hi = hi;
+            this.lo = lo;
+            this.length = length;
+        }
+
+        void set(boolean one, Node child) {
+            if (one) {
+                this.one = child;
+            } else {
+                this.zero = child;
+            }
+        }
+    }
+
+    /**
+     * Cached verdict of a host name
+     */
+    static class HostVerdict {
+        final String verdict;
+        final long resolvedAt;
+
+        HostVerdict(String verdict, long resolvedAt) {
+            this.verdict = verdict;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
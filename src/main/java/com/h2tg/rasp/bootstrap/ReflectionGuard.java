@@ -0,0 +1,116 @@
+package com.h2tg.rasp.bootstrap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ReflectionGuard flags reflective access to dangerous sinks (Method.invoke, Constructor.newInstance, Class.forName).
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * Danger bits are computed once per Class and held in a ClassValue, so the fast path of every
+ * reflective call is one ClassValue lookup on the declaring class. Method and Constructor objects are copied
+ * on every lookup and cannot carry state, the per-member check is a name filter that only runs for flagged classes.
+ */
+public class ReflectionGuard {
+
+    /**
+     * Some members of the class are sinks, see the member list
+     */
+    public static final int MEMBERS = 1;
+
+    /**
+     * Every member and constructor of the class is a sink
+     */
+    public static final int ALL_MEMBERS = 1 << 1;
+
+    /**
+     * Loading the class by name is reported
+     */
+    public static final int FOR_NAME = 1 << 2;
+
+    private static final String CONSTRUCTOR = "<init>";
+
+    private static final Danger SAFE = new Danger(0, new String[0]);
+
+    /**
+     * Sink classes: danger bits and dangerous members ("<init>" for constructors)
+     */
+    private static final Map<String, Danger> sinks = new HashMap<>();
+
+    static {
+        sink("java.lang.Runtime", MEMBERS, "exec", "load", "loadLibrary");
+        sink("java.lang.ProcessBuilder", MEMBERS, "start");
+        sink("java.lang.ProcessImpl", ALL_MEMBERS);
+        sink("java.lang.UNIXProcess", ALL_MEMBERS);
+        sink("java.lang.System", MEMBERS, "setSecurityManager");
+        sink("java.net.URLClassLoader", MEMBERS, CONSTRUCTOR, "newInstance");
+        sink("javax.script.ScriptEngineManager", MEMBERS, "getEngineByName", "getEngineByExtension", "getEngineByMimeType");
+        sink("com.sun.org.apache.xalan.internal.xsltc.trax.TemplatesImpl", ALL_MEMBERS | FOR_NAME);
+        sink("org.apache.xalan.xsltc.trax.TemplatesImpl", ALL_MEMBERS | FOR_NAME);
+        sink("com.sun.rowset.JdbcRowSetImpl", ALL_MEMBERS | FOR_NAME);
+        sink("com.sun.org.apache.bcel.internal.util.ClassLoader", ALL_MEMBERS | FOR_NAME);
+        sink("org.apache.bcel.util.ClassLoader", ALL_MEMBERS | FOR_NAME);
+    }
+
+    private static final Dangers dangers = new Dangers();
+
+    /**
+     * Danger bits of a class, 0 for almost every class.
+     * This method MUST be public and static for direct access from Advice methods.
+     */
+    public static int bits(Class<?> type) {
+        return dangers.get(type).bits;
+    }
+
+    /**
+     * Full check of a reflective member access, only called when bits() is not 0
+     *
+     * @param type Declaring class
+     * @param member Method name, or "<init>" for constructors
+     * @return "Class#member" if the member is a sink, null otherwise
+     */
+    public static String checkMember(Class<?> type, String member) {
+        Danger danger = dangers.get(type);
+        if ((danger.bits & ALL_MEMBERS) == 0) {
+            boolean listed = false;
+            for (String name : danger.members) {
+                if (name.equals(member)) {
+                    listed = true;
+                    break;
+                }
+            }
+            if (!listed) {
+                return null;
+            }
+        }
+        return type.getName() + "#" + member;
+    }
+
+    private static void sink(String className, int bits, String... members) {
+        sinks.put(className, new Danger(bits, members));
+    }
+
+    /**
+     * Danger bits and member list of one class
+     */
+    static class Danger {
+        final int bits;
+        final String[] members;
+
+        Danger(int bits, String[] members) {
+            this.bits = bits;
+            this.members = members;
+        }
+    }
+
+    /**
+     * Per-class danger, computed on first reflective use of a class
+     */
+    static class Dangers extends ClassValue<Danger> {
+        @Override
+        protected Danger computeValue(Class<?> type) {
+            Danger danger = sinks.get(type.getName());
+            return danger != null ? danger : SAFE;
+        }
+    }
+}
@@ -8,16 +8,223 @@ public class RequestContext
 {
 
     /**
-     * ThreadLocal to store current HTTP request for context-aware protection.
-     * MUST be public for direct access from Advice methods.
+     * Per-thread request state, allocated once per thread and never removed,
+     * entering and leaving a request only writes its fields (no ThreadLocalMap writes per request)
      */
-    public static final ThreadLocal<Object> currentRequest = new ThreadLocal<>();
+    private static final Holders holders = new Holders();
 
     public static final ThreadLocal<Object> currentResponse = new ThreadLocal<>();
 
+    /**
+     * Set once the first request reaches a request entry hook, marks the end of application startup
+     */
+    private static volatile boolean served;
+
+    /**
+     * Cleared while an async install retransforms already loaded classes in the background
+     */
+    private static volatile boolean armed = true;
+
+    /**
+     * How long a request arriving before the agent is armed waits for it, 0 serves it right away
+     */
+    private static volatile long pendingWaitMillis;
+
+    private static final Object armedLock = new Object();
+
     public static Object getCurrentRequest()
     {
-        return currentRequest.get();
+        return holders.get().request;
+    }
+
+    /**
+     * Open a request context. Nested entries on the same thread (forward, include, nested dispatch,
+     * handler chains) only count depth, the outermost request stays current until its own exit().
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param request Request object of a supported stack, its route policy is resolved once here
+     */
+    public static void enter(Object request)
+    {
+        enter(request, false);
+    }
+
+    /**
+     * Open a request context, see enter(Object).
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param request Request object of a supported stack, its route policy is resolved once here
+     * @param eventLoop Whether the entry runs on an event loop thread, which never waits for the agent to be armed
+     *                  (served with RoutePolicy.ALL until then)
+     */
+    public static void enter(Object request, boolean eventLoop)
+    {
+        Holder holder = holders.get();
+        if (holder.depth == 0) {
+            holder.policy = RoutePolicy.resolve(request, eventLoop);
+            holder.request = request;
+            holder.bodyState = 0;
+            holder.bodyRead = 0;
+            holder.bodyTag = null;
+        }
+        holder.depth++;
+    }
+
+    /**
+     * Open a request context for one step of an exchange served in several steps on an event loop
+     * (Reactor Netty: request received, then each inbound body chunk). The policy resolved for the
+     * exchange is reused by its later steps on the same thread, RoutePolicy.resolve runs once per exchange.
+     * Exchange steps run on the event loop: they never wait for the agent to be armed.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param exchange Request object of the exchange, one instance per request
+     */
+    public static void enterExchange(Object exchange)
+    {
+        Holder holder = holders.get();
+        if (holder.depth == 0 && holder.exchange != null && holder.exchange.get() == exchange) {
+            // Later step of the exchange: the body scan carries on where the previous chunk stopped
+            holder.policy = holder.exchangePolicy;
+            holder.request = exchange;
+            holder.depth = 1;
+            return;
+        }
+        boolean outermost = holder.depth == 0;
+        enter(exchange, true);
+        if (outermost) {
+            holder.exchange = new java.lang.ref.WeakReference<Object>(exchange);
+            holder.exchangePolicy = holder.policy;
+        }
+    }
+
+    /**
+     * Close a context opened by enter(), the outermost exit clears it.
+     * This method MUST be public and static for direct access from Advice methods.
+     */
+    public static void exit()
+    {
+        Holder holder = holders.get();
+        if (holder.depth > 0 && --holder.depth == 0) {
+            holder.request = null;
+            holder.policy = null;
+            holder.bodyTag = null;
+        }
+    }
+
+    /**
+     * Tag the current request with a request body indicator (BodyScanner finding), printed with every later event.
+     * This method MUST be public and static for direct access from Advice methods.
+     */
+    public static void tagBody(String finding)
+    {
+        Holder holder = holders.get();
+        if (holder.request != null) {
+            holder.bodyTag = finding;
+        }
+    }
+
+    /**
+     * Request body indicator of the current request, null if the body was clean so far or is not scanned
+     */
+    public static String getBodyTag()
+    {
+        return holders.get().bodyTag;
+    }
+
+    static Holder holder()
+    {
+        return holders.get();
+    }
+
+    /**
+     * Whether any request has been served yet (application startup is over)
+     */
+    public static boolean hasServed()
+    {
+        return served;
+    }
+
+    static void markServed()
+    {
+        if (!served) {
+            served = true;
+        }
+    }
+
+    /**
+     * Whether all hooks are in place (false while an async install is still retransforming loaded classes)
+     */
+    public static boolean isArmed()
+    {
+        return armed;
+    }
+
+    /**
+     * Mark protection as pending, requests entering meanwhile wait up to waitMillis for arm()
+     */
+    public static void disarm(long waitMillis)
+    {
+        pendingWaitMillis = waitMillis;
+        armed = false;
+    }
+
+    /**
+     * Mark protection as complete and release waiting requests
+     */
+    public static void arm()
+    {
+        synchronized (armedLock) {
+            armed = true;
+            armedLock.notifyAll();
+        }
+    }
+
+    /**
+     * Hold a request entering before the agent is armed, bounded by the pending wait (never called on event loops)
+     */
+    static void awaitArmed()
+    {
+        if (armed) {
+            return;
+        }
+        long deadline = System.nanoTime() + pendingWaitMillis * 1_000_000L;
+        synchronized (armedLock) {
+            long remaining;
+            while (!armed && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    armedLock.wait(remaining / 1_000_000L + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the policy of the current request, RoutePolicy.ALL outside any request
+     */
+    public static int getPolicy()
+    {
+        Integer policy = holders.get().policy;
+        return policy != null ? policy : RoutePolicy.ALL;
+    }
+
+    /**
+     * Carry the current request and policy into a task scheduled onto another thread (Reactor scheduler hop).
+     * Returns the task itself when no request is active, so scheduling outside requests does not allocate.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param task Task about to be scheduled
+     * @return Task restoring the scheduling thread's request context while it runs
+     */
+    public static Runnable capture(Runnable task)
+    {
+        Holder holder = holders.get();
+        if (holder.request == null || task == null || task instanceof Carrier) {
+            return task;
+        }
+        return new Carrier(holder.request, holder.policy, task);
     }
 
     /**
@@ -33,6 +240,14 @@ public class RequestContext
         }
 
         try {
+            String requestLine = RequestShape.requestLine(request);
+            if (requestLine != null && !hasMethod(request, "getParameterMap")) {
+                // Undertow, Netty and Reactor requests: method and path only
+                System.err.println("  Request: " + requestLine);
+                logBodyTag(request);
+                return;
+            }
+
             java.lang.reflect.Method getMethodMethod = request.getClass().getMethod("getMethod");
             java.lang.reflect.Method getRequestURIMethod = request.getClass().getMethod("getRequestURI");
             java.lang.reflect.Method getParameterMapMethod = request.getClass().getMethod("getParameterMap");
@@ -59,6 +274,86 @@ public class RequestContext
         } catch (Exception e) {
             System.err.println("  Request: (failed to extract details)");
         }
+        logBodyTag(request);
+    }
+
+    private static void logBodyTag(Object request)
+    {
+        Holder holder = holders.get();
+        if (holder.bodyTag != null && holder.request == request) {
+            System.err.println("  Body: " + holder.bodyTag);
+        }
+    }
+
+    private static boolean hasMethod(Object target, String name)
+    {
+        try {
+            target.getClass().getMethod(name);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs a task with the request context of the thread that scheduled it, then restores the worker's own
+     */
+    static class Carrier implements Runnable
+    {
+        private final Object request;
+        private final Integer policy;
+        private final Runnable task;
+
+        Carrier(Object request, Integer policy, Runnable task)
+        {
+            this.request = request;
+            this.policy = policy;
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            Holder holder = holders.get();
+            Object previousRequest = holder.request;
+            Integer previousPolicy = holder.policy;
+            int previousDepth = holder.depth;
+            holder.request = request;
+            holder.policy = policy;
+            holder.depth = previousDepth + 1;
+            try {
+                task.run();
+            } finally {
+                holder.request = previousRequest;
+                holder.policy = previousPolicy;
+                holder.depth = previousDepth;
+            }
+        }
     }
 
+    /**
+     * Request state of one thread: outermost request, its policy, the dispatch depth
+     * and the request body scan (automaton state, bytes scanned, indicator found), plus the last
+     * exchange entered through enterExchange() and its policy (weakly held, it may be gone)
+     */
+    static class Holder
+    {
+        Object request;
+        Integer policy;
+        int depth;
+        int bodyState;
+        long bodyRead;
+        String bodyTag;
+        java.lang.ref.WeakReference<Object> exchange;
+        Integer exchangePolicy;
+    }
+
+    static class Holders extends ThreadLocal<Holder>
+    {
+        @Override
+        protected Holder initialValue()
+        {
+            return new Holder();
+        }
+    }
 }
@@ -0,0 +1,112 @@
+package com.h2tg.rasp.bootstrap;
+
+/**
+ * RequestShape reads method and path from the request objects of the supported HTTP stacks
+ * (Servlet, Undertow HttpServerExchange, Netty HttpRequest, Reactor Netty HttpServerRequest).
+ * Accessors are looked up once per request class, so reading them on the hot path does not allocate.
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ */
+public class RequestShape {
+
+    /**
+     * Accessor names per stack: method getter, path getter, optional second path getter, raw (undecoded) URI
+     */
+    private static final Object[][] KINDS = {
+            {"getMethod", "getServletPath", "getPathInfo", false},
+            {"getRequestMethod", "getRequestPath", null, false},
+            {"method", "uri", null, true}
+    };
+
+    private static final Shapes shapes = new Shapes();
+
+    private final java.lang.reflect.Method method;
+    private final java.lang.reflect.Method path;
+    private final java.lang.reflect.Method pathInfo;
+    private final boolean rawUri;
+
+    private RequestShape(java.lang.reflect.Method method, java.lang.reflect.Method path,
+                         java.lang.reflect.Method pathInfo, boolean rawUri) {
+        this.method = method;
+        this.path = path;
+        this.pathInfo = pathInfo;
+        this.rawUri = rawUri;
+    }
+
+    /**
+     * Get the shape of a request object, null if it is not a request of a supported stack
+     */
+    public static RequestShape of(Object request) {
+        return request != null ? shapes.get(request.getClass()) : null;
+    }
+
+    /**
+     * Test whether a pipeline message is a request of a supported stack.
+     * This method MUST be public and static for direct access from Advice methods.
+     */
+    public static boolean isRequest(Object message) {
+        return of(message) != null;
+    }
+
+    /**
+     * Render "METHOD path" of a request for block logs, null if it is not a supported request
+     */
+    public static String requestLine(Object request) {
+        RequestShape shape = of(request);
+        if (shape == null) {
+            return null;
+        }
+        try {
+            String info = shape.path(request, 1);
+            return shape.method(request) + " " + shape.path(request, 0) + (info != null ? info : "");
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public String method(Object request) throws Exception {
+        return String.valueOf(method.invoke(request));
+    }
+
+    /**
+     * Read a path part: 0 the path (servlet path or full path), 1 the servlet path info (null for other stacks)
+     */
+    public String path(Object request, int part) throws Exception {
+        java.lang.reflect.Method getter = part == 0 ? path : pathInfo;
+        return getter != null ? (String) getter.invoke(request) : null;
+    }
+
+    /**
+     * True when the path is the raw request-target (undecoded, may carry a query string)
+     */
+    public boolean isRawUri() {
+        return rawUri;
+    }
+
+    /**
+     * Per request class shape, null for classes of no supported stack
+     */
+    static class Shapes extends ClassValue<RequestShape> {
+        @Override
+        protected RequestShape computeValue(Class<?> type) {
+            for (Object[] kind : KINDS) {
+                try {
+                    java.lang.reflect.Method method = type.getMethod((String) kind[0]);
+                    java.lang.reflect.Method path = type.getMethod((String) kind[1]);
+                    java.lang.reflect.Method pathInfo = kind[2] != null ? type.getMethod((String) kind[2]) : null;
+                    if (path.getReturnType() != String.class) {
+                        continue;
+                    }
+                    method.setAccessible(true);
+                    path.setAccessible(true);
+                    if (pathInfo != null) {
+                        pathInfo.setAccessible(true);
+                    }
+                    return new RequestShape(method, path, pathInfo, (Boolean) kind[3]);
+                } catch (Exception e) {
+                    // Not this stack, try the next one
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.h2tg.rasp.bootstrap;
+
+/**
+ * RoutePolicy decides per request which protection hooks are active and whether they block or only monitor.
+ * Policies come from system property rasp.policy and are compiled once into a path-segment trie,
+ * resolved once at request entry and kept as a bitmask in RequestContext, so every hook only tests a bit.
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * Format: entries separated by ';', each "[METHOD ]/path=spec", spec a comma list of
+ * "off|monitor|block" (all hooks) or "hook:mode" with hook one of deserialize, jndi, process, rmi, jni, expression, network, xxe, reflection, shell, body.
+ * Example: -Drasp.policy="/health=off;/static=off;POST /api/import=block,deserialize:monitor"
+ *
+ * The hook profile (system property rasp.hooks, usually given as agentArgs) selects the hooks installed at all
+ * and their default mode: a comma list of "hook" (blocking) or "hook:monitor", every hook except the optional
+ * request body scan blocking when unset or invalid ("serial" is accepted for deserialize).
+ * Example: -javaagent:MicroRASP.jar=deserialize,jndi,process:monitor
+ *          -javaagent:MicroRASP.jar=all,body:monitor
+ */
+public class RoutePolicy {
+
+    public static final String POLICY_PROPERTY = "rasp.policy";
+
+    public static final String HOOKS_PROPERTY = "rasp.hooks";
+
+    /**
+     * Hook bits: set when the hook is active for the current route
+     */
+    public static final int DESERIALIZE = 1;
+    public static final int JNDI = 1 << 1;
+    public static final int PROCESS = 1 << 2;
+    public static final int RMI = 1 << 3;
+    public static final int JNI = 1 << 4;
+    public static final int EXPRESSION = 1 << 5;
+    public static final int NETWORK = 1 << 6;
+    public static final int XXE = 1 << 7;
+    public static final int REFLECTION = 1 << 8;
+    public static final int SHELL = 1 << 9;
+    public static final int BODY = 1 << 10;
+
+    /**
+     * Hook bit shifted by BLOCK_SHIFT is set when the active hook blocks (otherwise it only logs)
+     */
+    public static final int BLOCK_SHIFT = 16;
+
+    private static final String[] HOOK_NAMES = {"deserialize", "jndi", "process", "rmi", "jni", "expression", "network", "xxe", "reflection", "shell", "body"};
+
+    private static final int HOOKS = (1 << HOOK_NAMES.length) - 1;
+
+    /**
+     * Hooks installed without a profile, the request body scan is opt-in
+     */
+    private static final int DEFAULT_HOOKS = HOOKS & ~BODY;
+
+    /**
+     * Hooks selected by the profile, handlers of other hooks are not installed and routes cannot activate them
+     */
+    public static final int ENABLED;
+
+    /**
+     * Policy outside any request and for routes without a rule: the profile's hooks in their profile mode
+     * (every default hook active and blocking without a profile)
+     */
+    public static final int ALL;
+
+    private static final Integer ALL_BOXED;
+
+    /**
+     * Root of the compiled trie, null when no policy is configured (resolve skips reflection entirely)
+     */
+    private static final Node root;
+
+    private static final java.util.List<String> rules = new java.util.ArrayList<>();
+
+    static {
+        ALL = profile(System.getProperty(HOOKS_PROPERTY, ""));
+        ENABLED = ALL & HOOKS;
+        ALL_BOXED = ALL;
+
+        Node compiled = null;
+        String configured = System.getProperty(POLICY_PROPERTY, "");
+        for (String entry : configured.split(";")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            try {
+                if (compiled == null) {
+                    compiled = new Node("");
+                }
+                compile(compiled, entry);
+            } catch (IllegalArgumentException e) {
+                System.err.println("[MicroRASP] Ignoring invalid route policy \"" + entry + "\": " + e.getMessage());
+            }
+        }
+        root = compiled;
+    }
+
+    /**
+     * Test whether a hook is active under the given policy
+     */
+    public static boolean isActive(int policy, int hook) {
+        return (policy & hook) != 0;
+    }
+
+    /**
+     * Test whether an active hook blocks under the given policy, false means monitor only
+     */
+    public static boolean blocks(int policy, int hook) {
+        return (policy & (hook << BLOCK_SHIFT)) != 0;
+    }
+
+    /**
+     * Resolve the policy of a request by longest segment prefix of its path
+     * (servlet path + path info, Undertow request path, or Netty/Reactor request-target up to the query).
+     * Returns pre-boxed values so storing the result in RequestContext does not allocate.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param request Request object of a supported stack (accessed via RequestShape)
+     * @return Policy bitmask, ALL when nothing matches or the request cannot be inspected
+     */
+    public static Integer resolve(Object request) {
+        return resolve(request, false);
+    }
+
+    /**
+     * Resolve the policy of a request, see resolve(Object).
+     * An entry on an event loop must not park its thread (every connection of the loop would stall):
+     * before the agent is armed it is served right away with ALL instead of waiting.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param request Request object of a supported stack (accessed via RequestShape)
+     * @param eventLoop Whether the entry runs on an event loop thread (Netty, Reactor Netty)
+     * @return Policy bitmask, ALL when nothing matches, the request cannot be inspected,
+     *         or an event loop entry arrives before the agent is armed
+     */
+    public static Integer resolve(Object request, boolean eventLoop) {
+        RequestContext.markServed();
+        if (eventLoop) {
+            if (!RequestContext.isArmed()) {
+                return ALL_BOXED;
+            }
+        } else {
+            RequestContext.awaitArmed();
+        }
+        if (root == null) {
+            return ALL_BOXED;
+        }
+        RequestShape shape = RequestShape.of(request);
+        if (shape == null) {
+            return ALL_BOXED;
+        }
+        try {
+            String method = shape.method(request);
+            boolean rawUri = shape.isRawUri();
+            Node node = root;
+            Integer best = root.policyFor(method);
+            for (int part = 0; part <= 1; part++) {
+                String path = shape.path(request, part);
+                if (path == null) {
+                    continue;
+                }
+                int length = path.length();
+                if (rawUri) {
+                    for (int i = 0; i < length; i++) {
+                        char c = path.charAt(i);
+                        if (c == '?' || c == '#') {
+                            length = i;
+                            break;
+                        }
+                    }
+                }
+                int i = 0;
+                while (i < length) {
+                    if (path.charAt(i) == '/') {
+                        i++;
+                        continue;
+                    }
+                    int end = path.indexOf('/', i);
+                    if (end < 0 || end > length) {
+                        end = length;
+                    }
+                    // Never relax protection for a path the server did not decode and normalize
+                    if (isSuspicious(path, i, end, rawUri)) {
+                        return ALL_BOXED;
+                    }
+                    if (node != null) {
+                        node = node.child(path, i, end);
+                        if (node != null) {
+                            Integer policy = node.policyFor(method);
+                            if (policy != null) {
+                                best = policy;
+                            }
+                        }
+                    }
+                    i = end;
+                }
+            }
+            return best != null ? best : ALL_BOXED;
+        } catch (Throwable t) {
+            return ALL_BOXED;
+        }
+    }
+
+    /**
+     * Compiled rules in configuration order, for the install log
+     */
+    public static java.util.List<String> describe() {
+        return java.util.Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * Render a policy bitmask as "hook:mode" list
+     */
+    public static String format(int policy) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < HOOK_NAMES.length; i++) {
+            int hook = 1 << i;
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(HOOK_NAMES[i]).append(':')
+                    .append(!isActive(policy, hook) ? "off" : blocks(policy, hook) ? "block" : "monitor");
+        }
+        return sb.toString();
+    }
+
+    private static void compile(Node root, String entry) {
+        int equals = entry.indexOf('=');
+        if (equals < 0) {
+            throw new IllegalArgumentException("missing '='");
+        }
+        String route = entry.substring(0, equals).trim();
+        String method = null;
+        int space = route.indexOf(' ');
+        if (space > 0) {
+            method = route.substring(0, space).trim().toUpperCase(java.util.Locale.ROOT);
+            route = route.substring(space + 1).trim();
+        }
+        if (!route.startsWith("/")) {
+            throw new IllegalArgumentException("path must start with '/'");
+        }
+
+        int policy = ALL;
+        for (String token : entry.substring(equals + 1).split(",")) {
+            token = token.trim().toLowerCase(java.util.Locale.ROOT);
+            if (token.isEmpty()) {
+                continue;
+            }
+            int colon = token.indexOf(':');
+            int hooks = colon < 0 ? HOOKS : hookBit(token.substring(0, colon).trim());
+            policy = withMode(policy, hooks, colon < 0 ? token : token.substring(colon + 1).trim());
+        }
+        policy &= ENABLED | (ENABLED << BLOCK_SHIFT);
+
+        Node node = root;
+        for (String segment : route.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (isSuspicious(segment, 0, segment.length(), false)) {
+                throw new IllegalArgumentException("invalid segment '" + segment + "'");
+            }
+            Node child = node.child(segment, 0, segment.length());
+            node = child != null ? child : node.addChild(segment);
+        }
+        node.setPolicy(method, policy);
+        rules.add((method != null ? method + " " : "") + route + " -> " + format(policy));
+    }
+
+    /**
+     * Compile the hook profile: "hook" or "hook:mode" entries, hooks not listed are off.
+     * An invalid entry fails closed: the whole profile falls back to the default (every default hook blocking),
+     * dropping only that entry could leave the hook it meant unprotected
+     */
+    private static int profile(String configured) {
+        int defaults = DEFAULT_HOOKS | (DEFAULT_HOOKS << BLOCK_SHIFT);
+        if (configured.trim().isEmpty()) {
+            return defaults;
+        }
+        int policy = 0;
+        for (String token : configured.split(",")) {
+            token = token.trim().toLowerCase(java.util.Locale.ROOT);
+            if (token.isEmpty()) {
+                continue;
+            }
+            try {
+                int colon = token.indexOf(':');
+                int hooks = hookBit((colon < 0 ? token : token.substring(0, colon)).trim());
+                policy = withMode(policy, hooks, colon < 0 ? "block" : token.substring(colon + 1).trim());
+            } catch (IllegalArgumentException e) {
+                System.err.println("[MicroRASP] Invalid hook profile entry \"" + token + "\": " + e.getMessage()
+                        + ", using the default profile (every hook except body, blocking) instead of \"" + configured + "\"");
+                return defaults;
+            }
+        }
+        return policy;
+    }
+
+    private static int withMode(int policy, int hooks, String mode) {
+        policy &= ~(hooks | (hooks << BLOCK_SHIFT));
+        if ("monitor".equals(mode)) {
+            policy |= hooks;
+        } else if ("block".equals(mode)) {
+            policy |= hooks | (hooks << BLOCK_SHIFT);
+        } else if (!"off".equals(mode)) {
+            throw new IllegalArgumentException("unknown mode '" + mode + "'");
+        }
+        return policy;
+    }
+
+    /**
+     * Hook bit of a hook name ("all" for every hook, "serial" for deserialize), shared with the rule DSL
+     */
+    public static int hookBit(String name) {
+        if ("all".equals(name)) {
+            return HOOKS;
+        }
+        if ("serial".equals(name)) {
+            return DESERIALIZE;
+        }
+        for (int i = 0; i < HOOK_NAMES.length; i++) {
+            if (HOOK_NAMES[i].equals(name)) {
+                return 1 << i;
+            }
+        }
+        throw new IllegalArgumentException("unknown hook '" + name + "'");
+    }
+
+    private static boolean isSuspicious(String path, int start, int end, boolean rawUri) {
+        int length = end - start;
+        if (length == 1 && path.charAt(start) == '.') {
+            return true;
+        }
+        if (length == 2 && path.charAt(start) == '.' && path.charAt(start + 1) == '.') {
+            return true;
+        }
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c == ';' || c == '\\' || (rawUri && c == '%')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Trie node for one path segment, children and method rules are small arrays scanned linearly
+     */
+    static class Node {
+        private final String segment;
+        private Node[] children = new Node[0];
+        private String[] methods = new String[0];
+        private Integer[] methodPolicies = new Integer[0];
+        private Integer anyPolicy;
+
+        Node(String segment) {
+            this.segment = segment;
+        }
+
+        Node child(String path, int start, int end) {
+            int length = end - start;
+            for (Node child : children) {
+                if (child.segment.length() == length && path.regionMatches(start, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        Node addChild(String segment) {
+            Node child = new Node(segment);
+            children = java.util.Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        void setPolicy(String method, int policy) {
+            if (method == null) {
+                anyPolicy = policy;
+                return;
+            }
+            for (int i = 0; i < methods.length; i++) {
+                if (methods[i].equals(method)) {
+                    methodPolicies[i] = policy;
+                    return;
+                }
+            }
+            methods = java.util.Arrays.copyOf(methods, methods.length + 1);
+            methodPolicies = java.util.Arrays.copyOf(methodPolicies, methodPolicies.length + 1);
+            methods[methods.length - 1] = method;
+            methodPolicies[methodPolicies.length - 1] = policy;
+        }
+
+        Integer policyFor(String method) {
+            for (int i = 0; i < methods.length; i++) {
+                if (methods[i].equals(method)) {
+                    return methodPolicies[i];
+                }
+            }
+            return anyPolicy;
+        }
+    }
+}
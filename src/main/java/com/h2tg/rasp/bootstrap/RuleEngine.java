@@ -0,0 +1,117 @@
+package com.h2tg.rasp.bootstrap;
+
+/**
+ * RuleEngine holds the active policy rule set and is consulted by hooks before their built-in checks.
+ * Rules are compiled by the agent into a RuleMatcher subclass and swapped in atomically,
+ * a hook call only reads one volatile field and runs the generated straight-line code.
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ */
+public class RuleEngine {
+
+    /**
+     * Verdicts (low bits of a result): no rule matched, built-in checks decide
+     */
+    public static final int NONE = 0;
+    public static final int ALLOW = 1;
+    public static final int MONITOR = 2;
+    public static final int BLOCK = 3;
+
+    public static final int VERDICT_MASK = 3;
+
+    /**
+     * Result = (rule number << RULE_SHIFT) | verdict
+     */
+    public static final int RULE_SHIFT = 2;
+
+    private static volatile RuleMatcher matcher;
+
+    /**
+     * Evaluate the active rules for a hook call.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param hook RoutePolicy hook bit
+     * @param subject Checked value of the hook
+     * @return Result for verdict() and logRule(), NONE when no rule set is loaded or no rule matched
+     */
+    public static int evaluate(int hook, String subject) {
+        RuleMatcher current = matcher;
+        if (current == null) {
+            return NONE;
+        }
+        return current.match(hook, subject != null ? subject : "", RequestContext.getCurrentRequest());
+    }
+
+    public static int verdict(int result) {
+        return result & VERDICT_MASK;
+    }
+
+    /**
+     * Print the rule that produced a result to System.err, nothing if no rule matched
+     */
+    public static void logRule(int result) {
+        RuleMatcher current = matcher;
+        if (current == null || verdict(result) == NONE) {
+            return;
+        }
+        System.err.println("  Rule: " + current.source(result >>> RULE_SHIFT));
+    }
+
+    /**
+     * Replace the active rule set, null removes all rules
+     *
+     * @return The previous rule set
+     */
+    public static RuleMatcher install(RuleMatcher rules) {
+        RuleMatcher previous = matcher;
+        matcher = rules;
+        return previous;
+    }
+
+    public static RuleMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * Request method for rule conditions, "" outside requests. Called from generated matchers.
+     */
+    public static String requestMethod(Object request) {
+        RequestShape shape = RequestShape.of(request);
+        if (shape == null) {
+            return "";
+        }
+        try {
+            return shape.method(request);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /**
+     * Request path for rule conditions (without query string), "" outside requests. Called from generated matchers.
+     */
+    public static String requestPath(Object request) {
+        RequestShape shape = RequestShape.of(request);
+        if (shape == null) {
+            return "";
+        }
+        try {
+            String path = shape.path(request, 0);
+            String info = shape.path(request, 1);
+            if (path == null) {
+                return "";
+            }
+            if (info != null) {
+                path = path + info;
+            }
+            if (shape.isRawUri()) {
+                int query = path.indexOf('?');
+                if (query >= 0) {
+                    path = path.substring(0, query);
+                }
+            }
+            return path;
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.h2tg.rasp.bootstrap;
+
+/**
+ * RuleMatcher evaluates a policy rule set for one hook call.
+ * Implemented by classes generated from the rule DSL (core.RuleCompiler) and by the reference interpreter (core.RuleSet).
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ */
+public abstract class RuleMatcher {
+
+    /**
+     * Rule source lines, indexed by rule number
+     */
+    private final String[] sources;
+
+    protected RuleMatcher(String[] sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Evaluate the rules in order, the first matching rule decides
+     *
+     * @param hook RoutePolicy hook bit of the calling hook
+     * @param subject Checked value (class name, command, JNDI name, library, codebase), never null
+     * @param request Current request, null outside requests
+     * @return RuleEngine result: rule number shifted by RuleEngine.RULE_SHIFT plus verdict, RuleEngine.NONE if no rule matched
+     */
+    public abstract int match(int hook, String subject, Object request);
+
+    /**
+     * Source line of a rule
+     */
+    public String source(int rule) {
+        return rule >= 0 && rule < sources.length ? sources[rule] : "#" + rule;
+    }
+
+    public int size() {
+        return sources.length;
+    }
+}
@@ -0,0 +1,34 @@
+package com.h2tg.rasp.bootstrap;
+
+/**
+ * SerialFilter checks classes resolved by ObjectInputStream against SerialHelper.denyClasses through the
+ * JVM-wide ObjectInputFilter, with the verdict cached per class.
+ * Java 8 baseline: there is no ObjectInputFilter API, ReadClassDescAdvice checks every descriptor by name.
+ * The JDK 9+ implementation is in META-INF/versions/9 of the multi-release jar.
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ */
+public class SerialFilter {
+
+    public static final String FILTER_PROPERTY = "rasp.serial.filter";
+
+    /**
+     * Install the filter as the JVM-wide serial filter
+     *
+     * @return Description of the outcome for the install log
+     */
+    public static String install() {
+        return "not available before JDK 9, descriptors are checked by name";
+    }
+
+    /**
+     * Whether the deny list check of a descriptor was already done by the filter.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param stream The ObjectInputStream reading the descriptor
+     * @param desc The ObjectStreamClass returned by readClassDesc
+     * @return true if readClassDesc can skip SerialHelper.checkDenyClass for this descriptor
+     */
+    public static boolean covers(Object stream, Object desc) {
+        return false;
+    }
+}
@@ -42,7 +42,8 @@ public class SerialHelper {
             "java.lang.ProcessBuilder",
             "java.lang.Runtime",
 //            "java.rmi.server.",
-            "java.security.",
+//            "java.security.",
+            "java.security.SignedObject",
             "java.util.ServiceLoader",
             "java.util.StringTokenizer",
 //            "javassist.bytecode.annotation.",
@@ -65,11 +66,11 @@ public class SerialHelper {
             "org.apache.aries.transaction.jms.",
             "org.apache.bcel.util.",
             "org.apache.carbondata.core.scan.expression.",
-            "org.apache.commons.beanutils.",
-            "org.apache.commons.codec.binary.",
+//            "org.apache.commons.beanutils.",
+//            "org.apache.commons.codec.binary.",
             "org.apache.commons.collections.functors.",
             "org.apache.commons.collections4.functors.",
-            "org.apache.commons.codec.",
+//            "org.apache.commons.codec.",
             "org.apache.commons.configuration.",
             "org.apache.commons.configuration2.",
             "org.apache.commons.dbcp.datasources.",
@@ -129,6 +130,144 @@ public class SerialHelper {
             "weblogic.jms.common."
     };
 
+    /**
+     * Known gadget chains as class descriptor sequences: {chain name, class, class, ...}.
+     * Classes must appear in this order in the stream, descriptors of other classes in between are ignored.
+     * Chains cover classes that are harmless on their own, instead of banning whole packages:
+     * commons-beanutils is only dangerous as BeanComparator under a PriorityQueue (CommonsBeanutils1),
+     * commons-codec has no deserialization chain at all (payload generators only use it to encode).
+     */
+    public static final String[][] gadgetChains = {
+            {"CommonsCollections1", "sun.reflect.annotation.AnnotationInvocationHandler", "org.apache.commons.collections.map.LazyMap"},
+            {"CommonsCollections1/TransformedMap", "sun.reflect.annotation.AnnotationInvocationHandler", "org.apache.commons.collections.map.TransformedMap"},
+            {"CommonsCollections5/6", "org.apache.commons.collections.keyvalue.TiedMapEntry", "org.apache.commons.collections.map.LazyMap"},
+            {"CommonsCollections4-5/6", "org.apache.commons.collections4.keyvalue.TiedMapEntry", "org.apache.commons.collections4.map.LazyMap"},
+            {"CommonsCollections2/4", "java.util.PriorityQueue", "org.apache.commons.collections4.comparators.TransformingComparator"},
+            {"CommonsBeanutils1", "java.util.PriorityQueue", "org.apache.commons.beanutils.BeanComparator"},
+            {"Click1", "java.util.PriorityQueue", "org.apache.click.control.Column$ColumnComparator", "org.apache.click.control.Column"},
+            {"Jython1", "java.util.PriorityQueue", "org.python.core.PyFunction", "org.python.core.PyBytecode"},
+            {"Vaadin1", "com.vaadin.data.util.PropertysetItem", "com.vaadin.data.util.NestedMethodProperty"},
+            {"MozillaRhino1", "org.mozilla.javascript.NativeError", "org.mozilla.javascript.MemberBox"},
+            {"Spring2", "org.springframework.core.SerializableTypeWrapper$MethodInvokeTypeProvider", "org.springframework.aop.framework.JdkDynamicAopProxy"}
+    };
+
+    // Aho-Corasick automaton over class-name tokens of gadgetChains, built once
+    private static final java.util.HashMap<String, Integer> gadgetTokens = new java.util.HashMap<>();
+    private static final int[][] gadgetDelta;
+    private static final int[] gadgetOutput;
+
+    /**
+     * Per-stream automaton state {state, last token}, weakly keyed by ObjectInputStream.
+     * Entries are only created for streams that contain at least one chain class.
+     */
+    private static final GadgetStates gadgetStates = new GadgetStates();
+
+    static {
+        for (String[] chain : gadgetChains) {
+            for (int i = 1; i < chain.length; i++) {
+                if (!gadgetTokens.containsKey(chain[i])) {
+                    gadgetTokens.put(chain[i], gadgetTokens.size());
+                }
+            }
+        }
+        int tokenCount = gadgetTokens.size();
+
+        // Trie
+        java.util.List<int[]> trie = new java.util.ArrayList<>();
+        java.util.List<Integer> output = new java.util.ArrayList<>();
+        trie.add(newRow(tokenCount));
+        output.add(-1);
+        for (int c = 0; c < gadgetChains.length; c++) {
+            int state = 0;
+            for (int i = 1; i < gadgetChains[c].length; i++) {
+                int token = gadgetTokens.get(gadgetChains[c][i]);
+                if (trie.get(state)[token] < 0) {
+                    trie.get(state)[token] = trie.size();
+                    trie.add(newRow(tokenCount));
+                    output.add(-1);
+                }
+                state = trie.get(state)[token];
+            }
+            output.set(state, c);
+        }
+
+        // Failure links folded into a full transition table (BFS order)
+        int[] fail = new int[trie.size()];
+        java.util.ArrayDeque<Integer> queue = new java.util.ArrayDeque<>();
+        int[] root = trie.get(0);
+        for (int t = 0; t < tokenCount; t++) {
+            if (root[t] < 0) {
+                root[t] = 0;
+            } else {
+                fail[root[t]] = 0;
+                queue.add(root[t]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (output.get(state) < 0) {
+                output.set(state, output.get(fail[state]));
+            }
+            int[] row = trie.get(state);
+            for (int t = 0; t < tokenCount; t++) {
+                int next = row[t];
+                if (next < 0) {
+                    row[t] = trie.get(fail[state])[t];
+                } else {
+                    fail[next] = trie.get(fail[state])[t];
+                    queue.add(next);
+                }
+            }
+        }
+
+        gadgetDelta = trie.toArray(new int[0][]);
+        gadgetOutput = new int[output.size()];
+        for (int i = 0; i < gadgetOutput.length; i++) {
+            gadgetOutput[i] = output.get(i);
+        }
+    }
+
+    private static int[] newRow(int tokenCount) {
+        int[] row = new int[tokenCount];
+        java.util.Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * Feed a class descriptor of a stream to the gadget-chain automaton.
+     * O(1) per descriptor: one hash lookup for classes outside gadgetChains, one table step otherwise.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param stream The ObjectInputStream reading the descriptor
+     * @param className The descriptor class name
+     * @return The matched chain name if the stream completed a known gadget chain, null otherwise
+     */
+    public static String checkGadgetChain(Object stream, String className) {
+        if (stream == null || className == null) {
+            return null;
+        }
+        Integer token = gadgetTokens.get(className);
+        if (token == null) {
+            return null;
+        }
+
+        java.util.WeakHashMap<Object, int[]> states = gadgetStates.get();
+        int[] state = states.get(stream);
+        if (state == null) {
+            state = new int[]{0, -1};
+            states.put(stream, state);
+        }
+        // Back-references re-read the same descriptor
+        if (state[1] == token) {
+            return null;
+        }
+        state[1] = token;
+        state[0] = gadgetDelta[state[0]][token];
+
+        int matched = gadgetOutput[state[0]];
+        return matched < 0 ? null : gadgetChains[matched][0];
+    }
+
     /**
      * Get deny class patterns.
      *
@@ -178,6 +317,10 @@ public class SerialHelper {
             return null;
         }
 
+        if (desc instanceof java.io.ObjectStreamClass) {
+            return ((java.io.ObjectStreamClass) desc).getName();
+        }
+
         try {
             java.lang.reflect.Method method = desc.getClass().getMethod("getName");
             Object className = method.invoke(desc);
@@ -187,4 +330,13 @@ public class SerialHelper {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Named initializer instead of ThreadLocal.withInitial: no lambda is spun up inside the deserialization hook
+     */
+    static class GadgetStates extends ThreadLocal<java.util.WeakHashMap<Object, int[]>> {
+        @Override
+        protected java.util.WeakHashMap<Object, int[]> initialValue() {
+            return new java.util.WeakHashMap<>();
+        }
+    }
+}
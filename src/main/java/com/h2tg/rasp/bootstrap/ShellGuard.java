@@ -0,0 +1,368 @@
+package com.h2tg.rasp.bootstrap;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ShellGuard detects in-memory web shells at class definition (ClassLoader, Unsafe and Lookup defineClass).
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * Definitions are only checked inside a request or once startup is over (first request served,
+ * or rasp.shell.startup seconds after start for non-web applications), startup class loading is never inspected.
+ * The steady-state filter is a raw byte scan for web API package names, classes that never mention
+ * servlet/web types are rejected without parsing the class file.
+ *
+ * Candidates are fingerprinted with a 64-bit non-cryptographic hash (known shells: -Drasp.shell.deny=fingerprint,...)
+ * and their parsed shape is cached per fingerprint. A candidate is a shell when it directly extends or implements
+ * a servlet, filter, listener, interceptor, valve or websocket type and its defining loader has no class file for it,
+ * or one with other bytes (a shell defined under the name of an existing class).
+ */
+public class ShellGuard {
+
+    public static final String DENY_PROPERTY = "rasp.shell.deny";
+    public static final String STARTUP_PROPERTY = "rasp.shell.startup";
+
+    /**
+     * Package names every shell-shaped class file references, each followed by '/'
+     * (javax/servlet/, web/server/, org/apache/catalina/, websocket/, io/undertow/server/)
+     */
+    private static final byte[][] MARKERS = {
+            ascii("servlet"),
+            ascii("server"),
+            ascii("catalina"),
+            ascii("websocket")
+    };
+
+    /**
+     * Direct supertypes of shell-shaped classes (internal names)
+     */
+    private static final Set<String> SHELL_TYPES = new HashSet<>();
+
+    static {
+        for (String api : new String[]{"javax", "jakarta"}) {
+            SHELL_TYPES.add(api + "/servlet/Servlet");
+            SHELL_TYPES.add(api + "/servlet/GenericServlet");
+            SHELL_TYPES.add(api + "/servlet/http/HttpServlet");
+            SHELL_TYPES.add(api + "/servlet/Filter");
+            SHELL_TYPES.add(api + "/servlet/http/HttpFilter");
+            SHELL_TYPES.add(api + "/servlet/ServletRequestListener");
+            SHELL_TYPES.add(api + "/websocket/Endpoint");
+        }
+        SHELL_TYPES.add("org/springframework/web/servlet/HandlerInterceptor");
+        SHELL_TYPES.add("org/springframework/web/servlet/handler/HandlerInterceptorAdapter");
+        SHELL_TYPES.add("org/springframework/web/servlet/mvc/Controller");
+        SHELL_TYPES.add("org/springframework/web/server/WebFilter");
+        SHELL_TYPES.add("org/springframework/web/server/WebHandler");
+        SHELL_TYPES.add("org/apache/catalina/Valve");
+        SHELL_TYPES.add("org/apache/catalina/valves/ValveBase");
+        SHELL_TYPES.add("io/undertow/server/HttpHandler");
+    }
+
+    /**
+     * Upper bound of cached shapes, class bytes can come from untrusted input
+     */
+    private static final int MAX_CACHED_FINGERPRINTS = 4096;
+
+    /**
+     * Cached shape of classes that do not extend or implement a shell type
+     */
+    private static final String[] NOT_SHELL = new String[0];
+
+    private static final Map<Long, String> denied = new HashMap<>();
+
+    /**
+     * Shape per fingerprint: {shell type, internal class name} or NOT_SHELL, independent of the defining loader
+     */
+    private static final ConcurrentHashMap<Long, String[]> shapes = new ConcurrentHashMap<>();
+
+    private static final long startedAt = System.nanoTime();
+
+    private static final long startupNanos;
+
+    private static volatile boolean started;
+
+    static {
+        for (String fingerprint : System.getProperty(DENY_PROPERTY, "").split(",")) {
+            fingerprint = fingerprint.trim();
+            if (fingerprint.isEmpty()) {
+                continue;
+            }
+            try {
+                denied.put(Long.parseUnsignedLong(fingerprint, 16), "known shell fingerprint " + fingerprint);
+            } catch (NumberFormatException e) {
+                System.err.println("[MicroRASP] Ignoring invalid shell fingerprint \"" + fingerprint + "\"");
+            }
+        }
+        long startup = 300;
+        try {
+            startup = Long.parseLong(System.getProperty(STARTUP_PROPERTY, "300").trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[MicroRASP] Ignoring invalid " + STARTUP_PROPERTY + ": " + e.getMessage());
+        }
+        startupNanos = startup * 1_000_000_000L;
+    }
+
+    /**
+     * Whether class definitions are checked now: inside a request, or once startup is over.
+     * This method MUST be public and static for direct access from Advice methods.
+     */
+    public static boolean active() {
+        if (started) {
+            return true;
+        }
+        if (RequestContext.getCurrentRequest() != null) {
+            return true;
+        }
+        if (RequestContext.hasServed() || System.nanoTime() - startedAt > startupNanos) {
+            started = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check a class definition
+     *
+     * @param loader Defining loader, null for the bootstrap loader
+     * @param bytes Class file buffer
+     * @return Description of the shell, null for benign classes
+     */
+    public static String check(ClassLoader loader, byte[] bytes, int offset, int length) {
+        if (bytes == null || offset < 0 || length <= 0 || offset + length > bytes.length || !mentionsWebApi(bytes, offset, length)) {
+            return null;
+        }
+        long fingerprint = fingerprint(bytes, offset, length);
+        String verdict = denied.get(fingerprint);
+        if (verdict != null) {
+            return verdict;
+        }
+        String[] shape = shapes.get(fingerprint);
+        if (shape == null) {
+            shape = shape(bytes, offset, length);
+            if (shapes.size() < MAX_CACHED_FINGERPRINTS) {
+                shapes.putIfAbsent(fingerprint, shape);
+            }
+        }
+        if (shape == NOT_SHELL || isLambdaProxy(shape[1])) {
+            return null;
+        }
+        String classFile = classFile(loader, shape[1], bytes, offset, length);
+        if (classFile == null) {
+            return null;
+        }
+        return shape[0] + " " + classFile + ", fingerprint " + String.format("%016x", fingerprint);
+    }
+
+    /**
+     * Name of the class being defined, taken from the class file when the caller passed none
+     */
+    public static String className(String name, byte[] bytes, int offset, int length) {
+        if (name != null) {
+            return name;
+        }
+        String[] header = header(bytes, offset, length);
+        return header != null ? header[0].replace('/', '.') : "(unknown)";
+    }
+
+    /**
+     * 64-bit fingerprint of a class file (xxHash-style multiply/rotate over 8-byte words), hex for logs and rasp.shell.deny
+     */
+    public static long fingerprint(byte[] bytes, int offset, int length) {
+        long h = 0x27D4EB2F165667C5L ^ length;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8) {
+            long word = (bytes[i] & 0xffL)
+                    | (bytes[i + 1] & 0xffL) << 8
+                    | (bytes[i + 2] & 0xffL) << 16
+                    | (bytes[i + 3] & 0xffL) << 24
+                    | (bytes[i + 4] & 0xffL) << 32
+                    | (bytes[i + 5] & 0xffL) << 40
+                    | (bytes[i + 6] & 0xffL) << 48
+                    | (bytes[i + 7] & 0xffL) << 56;
+            h = Long.rotateLeft(h ^ word * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B185EBCA87L;
+        }
+        for (; i < end; i++) {
+            h = Long.rotateLeft(h ^ (bytes[i] & 0xffL) * 0x27D4EB2F165667C5L, 11) * 0x9E3779B185EBCA87L;
+        }
+        h ^= h >>> 33;
+        h *= 0x165667B19E3779F9L;
+        h ^= h >>> 29;
+        return h;
+    }
+
+    private static String[] shape(byte[] bytes, int offset, int length) {
+        String[] header = header(bytes, offset, length);
+        if (header == null) {
+            return NOT_SHELL;
+        }
+        for (int i = 1; i < header.length; i++) {
+            if (header[i] != null && SHELL_TYPES.contains(header[i])) {
+                return new String[]{header[i].replace('/', '.'), header[0]};
+            }
+        }
+        return NOT_SHELL;
+    }
+
+    /**
+     * Classes of normal loaders (jars, directories, JSP work dir) can be read back as a resource with the defined bytes.
+     * Injected ones have no class file, or borrow the name of a class visible through parent delegation,
+     * whose class file then differs from the definition
+     *
+     * @return null if the loader returns the defined bytes for the class, what differs otherwise
+     */
+    private static String classFile(ClassLoader loader, String internalName, byte[] bytes, int offset, int length) {
+        String resource = internalName + ".class";
+        try (InputStream in = loader != null ? loader.getResourceAsStream(resource) : ClassLoader.getSystemResourceAsStream(resource)) {
+            if (in == null) {
+                return "without class file";
+            }
+            // One byte more than defined, a longer class file differs as well
+            byte[] data = new byte[length + 1];
+            int read = 0;
+            int n;
+            while (read < data.length && (n = in.read(data, read, data.length - read)) > 0) {
+                read += n;
+            }
+            if (read != length) {
+                return "differing from its class file";
+            }
+            for (int i = 0; i < length; i++) {
+                if (data[i] != bytes[offset + i]) {
+                    return "differing from its class file";
+                }
+            }
+            return null;
+        } catch (Throwable e) {
+            // Loader failure: do not report what cannot be verified
+            return null;
+        }
+    }
+
+    /**
+     * Lambdas implementing a shell type (handler or filter lambdas) only forward to existing methods,
+     * they are recognized by their metafactory name and the JDK metafactory defining them
+     */
+    private static boolean isLambdaProxy(String internalName) {
+        if (internalName.indexOf("$$Lambda") < 0) {
+            return false;
+        }
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            if ("java.lang.invoke.InnerClassLambdaMetafactory".equals(frame.getClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Single pass over the class bytes, only '/' preceded by a marker's last letter is tested against the markers
+     */
+    private static boolean mentionsWebApi(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] != '/' || i == offset) {
+                continue;
+            }
+            byte last = bytes[i - 1];
+            if (last != 't' && last != 'r' && last != 'a') {
+                continue;
+            }
+            for (byte[] marker : MARKERS) {
+                if (endsWith(bytes, offset, i, marker)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean endsWith(byte[] bytes, int from, int end, byte[] marker) {
+        int start = end - marker.length;
+        if (start < from) {
+            return false;
+        }
+        for (int j = marker.length - 1; j >= 0; j--) {
+            if (bytes[start + j] != marker[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Walk the constant pool of a candidate for this_class, super_class and interfaces (internal names)
+     *
+     * @return {this, super, interfaces...}, null if the class file is malformed
+     */
+    private static String[] header(byte[] bytes, int offset, int length) {
+        try {
+            int end = offset + length;
+            int p = offset + 8;
+            int count = u2(bytes, p);
+            p += 2;
+            int[] entries = new int[count];
+            for (int i = 1; i < count; i++) {
+                entries[i] = p;
+                int tag = bytes[p] & 0xff;
+                switch (tag) {
+                    case 1:
+                        p += 3 + u2(bytes, p + 1);
+                        break;
+                    case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                        p += 5;
+                        break;
+                    case 5: case 6:
+                        p += 9;
+                        i++;
+                        break;
+                    case 7: case 8: case 16: case 19: case 20:
+                        p += 3;
+                        break;
+                    case 15:
+                        p += 4;
+                        break;
+                    default:
+                        return null;
+                }
+                if (p > end) {
+                    return null;
+                }
+            }
+            int interfaces = u2(bytes, p + 6);
+            String[] header = new String[2 + interfaces];
+            header[0] = classEntry(bytes, entries, u2(bytes, p + 2));
+            header[1] = classEntry(bytes, entries, u2(bytes, p + 4));
+            for (int i = 0; i < interfaces; i++) {
+                header[2 + i] = classEntry(bytes, entries, u2(bytes, p + 8 + 2 * i));
+            }
+            return header[0] != null ? header : null;
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static String classEntry(byte[] bytes, int[] entries, int index) {
+        if (index <= 0 || index >= entries.length || bytes[entries[index]] != 7) {
+            return null;
+        }
+        int utf8 = entries[u2(bytes, entries[index] + 1)];
+        if (bytes[utf8] != 1) {
+            return null;
+        }
+        return new String(bytes, utf8 + 3, u2(bytes, utf8 + 1), StandardCharsets.UTF_8);
+    }
+
+    private static int u2(byte[] bytes, int p) {
+        return (bytes[p] & 0xff) << 8 | (bytes[p + 1] & 0xff);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,169 @@
+package com.h2tg.rasp.bootstrap;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.TransformerFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * XxeGuard hardens XML parser factories against external entity and DTD resolution (XXE).
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * A factory is hardened the first time it creates a parser or transformer during a request.
+ * The outcome (applied mechanism, or unsupported) is remembered in a weak identity map,
+ * so a factory is probed once and the steady-state cost of a parser creation is one lock-free lookup.
+ *
+ * Where the implementation supports it, external DTD access is restricted (JAXP accessExternalDTD = ""),
+ * which makes the JDK parser refuse external entities and DTDs with an error; otherwise the external entity
+ * features are turned off. Schemas and stylesheets are left alone.
+ */
+public class XxeGuard {
+
+    private static final String EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities";
+    private static final String EXTERNAL_PARAMETER_ENTITIES = "http://xml.org/sax/features/external-parameter-entities";
+    private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+    private static final String SUPPORTING_EXTERNAL_ENTITIES = "javax.xml.stream.isSupportingExternalEntities";
+
+    private static final int BUCKETS = 1024;
+
+    /**
+     * Hardened factories: bucket chains of weak entries, replaced (never mutated) under the write lock
+     */
+    private static final AtomicReferenceArray<Entry> hardened = new AtomicReferenceArray<>(BUCKETS);
+
+    private static final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    /**
+     * Harden a factory once.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param factory DocumentBuilderFactory, SAXParserFactory, XMLInputFactory or TransformerFactory
+     * @return The hardening outcome of this factory
+     */
+    public static String harden(Object factory) {
+        if (factory == null) {
+            return null;
+        }
+        int hash = System.identityHashCode(factory);
+        String outcome = lookup(factory, hash);
+        if (outcome != null) {
+            return outcome;
+        }
+        outcome = apply(factory);
+        synchronized (hardened) {
+            String raced = lookup(factory, hash);
+            if (raced != null) {
+                return raced;
+            }
+            expunge();
+            int bucket = hash & (BUCKETS - 1);
+            hardened.set(bucket, new Entry(factory, hash, outcome, hardened.get(bucket)));
+        }
+        return outcome;
+    }
+
+    private static String lookup(Object factory, int hash) {
+        for (Entry e = hardened.get(hash & (BUCKETS - 1)); e != null; e = e.next) {
+            if (e.hash == hash && e.get() == factory) {
+                return e.outcome;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drop entries of collected factories (factories created per request are common), caller holds the lock
+     */
+    private static void expunge() {
+        Object reference;
+        while ((reference = collected.poll()) != null) {
+            int bucket = ((Entry) reference).hash & (BUCKETS - 1);
+            Entry kept = null;
+            for (Entry e = hardened.get(bucket); e != null; e = e.next) {
+                if (e != reference && e.get() != null) {
+                    kept = new Entry(e.get(), e.hash, e.outcome, kept);
+                }
+            }
+            hardened.set(bucket, kept);
+        }
+    }
+
+    private static String apply(Object factory) {
+        if (factory instanceof DocumentBuilderFactory) {
+            DocumentBuilderFactory dbf = (DocumentBuilderFactory) factory;
+            try {
+                dbf.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+                return "accessExternalDTD";
+            } catch (IllegalArgumentException e) {
+                int applied = 0;
+                for (String feature : new String[]{EXTERNAL_GENERAL_ENTITIES, EXTERNAL_PARAMETER_ENTITIES, LOAD_EXTERNAL_DTD}) {
+                    try {
+                        dbf.setFeature(feature, false);
+                        applied++;
+                    } catch (Exception ignored) {
+                        // Feature not recognized by this implementation
+                    }
+                }
+                return applied > 0 ? "external entity features" : "unsupported";
+            }
+        }
+        if (factory instanceof SAXParserFactory) {
+            // Factory attributes do not exist for SAX, accessExternalDTD is only settable per parser
+            SAXParserFactory spf = (SAXParserFactory) factory;
+            int applied = 0;
+            for (String feature : new String[]{EXTERNAL_GENERAL_ENTITIES, EXTERNAL_PARAMETER_ENTITIES, LOAD_EXTERNAL_DTD}) {
+                try {
+                    spf.setFeature(feature, false);
+                    applied++;
+                } catch (Exception ignored) {
+                    // Feature not recognized by this implementation
+                }
+            }
+            return applied > 0 ? "external entity features" : "unsupported";
+        }
+        if (factory instanceof XMLInputFactory) {
+            XMLInputFactory xif = (XMLInputFactory) factory;
+            try {
+                xif.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+                return "accessExternalDTD";
+            } catch (IllegalArgumentException e) {
+                try {
+                    xif.setProperty(SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+                    return "external entity features";
+                } catch (IllegalArgumentException unsupported) {
+                    return "unsupported";
+                }
+            }
+        }
+        if (factory instanceof TransformerFactory) {
+            TransformerFactory tf = (TransformerFactory) factory;
+            try {
+                tf.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+                return "accessExternalDTD";
+            } catch (IllegalArgumentException e) {
+                return "unsupported";
+            }
+        }
+        return "unsupported";
+    }
+
+    /**
+     * Weak reference to a hardened factory with its outcome
+     */
+    static class Entry extends WeakReference<Object> {
+        final int hash;
+        final String outcome;
+        final Entry next;
+
+        Entry(Object factory, int hash, String outcome, Entry next) {
+            super(factory, collected);
+            this.hash = hash;
+            this.outcome = outcome;
+            this.next = next;
+        }
+    }
+}
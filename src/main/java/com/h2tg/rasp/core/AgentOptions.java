@@ -0,0 +1,93 @@
+package com.h2tg.rasp.core;
+
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Agent options from agentArgs and an optional config file, applied as rasp.* system properties
+ * before the bootstrap classes read them.
+ *
+ * agentArgs: options separated by ';', each "key=value" with key a property name without the "rasp." prefix
+ * (hooks, rules, install, footprint, ...) or "config=/path/rasp.properties"; a token without '=' is the hook profile.
+ * Example: -javaagent:MicroRASP.jar=deserialize,jndi,process:monitor
+ *          -javaagent:MicroRASP.jar=config=/etc/rasp.properties;install=async
+ * The config file is a properties file of rasp.* entries (also -Drasp.config=...), its entries never override
+ * properties set on the command line; agentArgs override both. Route policies with several entries
+ * (';' separated) belong in the config file.
+ */
+public class AgentOptions {
+
+    public static final String CONFIG_PROPERTY = "rasp.config";
+
+    private static final String PREFIX = "rasp.";
+
+    private AgentOptions() {}
+
+    /**
+     * Apply agentArgs and the config file as system properties
+     *
+     * @param agentArgs Arguments of premain/agentmain, may be null
+     * @return Applied properties and problems, for the install log
+     */
+    public static List<String> apply(String agentArgs) {
+        List<String> messages = new ArrayList<>();
+        Map<String, String> arguments = parse(agentArgs);
+
+        String config = arguments.containsKey(CONFIG_PROPERTY) ? arguments.remove(CONFIG_PROPERTY) : System.getProperty(CONFIG_PROPERTY);
+        if (config != null && !config.trim().isEmpty()) {
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(new File(config.trim()))) {
+                properties.load(in);
+                int applied = 0;
+                for (String key : properties.stringPropertyNames()) {
+                    if (!key.startsWith(PREFIX) || System.getProperty(key) != null || arguments.containsKey(key)) {
+                        continue;
+                    }
+                    System.setProperty(key, properties.getProperty(key).trim());
+                    applied++;
+                }
+                messages.add("Applied " + applied + " of " + properties.size() + " option(s) from " + config.trim());
+            } catch (Exception e) {
+                messages.add("Failed to read config file " + config.trim() + ": " + e);
+            }
+        }
+
+        for (Map.Entry<String, String> argument : arguments.entrySet()) {
+            System.setProperty(argument.getKey(), argument.getValue());
+            messages.add("Agent argument " + argument.getKey() + "=" + argument.getValue());
+        }
+        return messages;
+    }
+
+    /**
+     * Split agentArgs into property names and values, the bare token is the hook profile
+     */
+    private static Map<String, String> parse(String agentArgs) {
+        Map<String, String> arguments = new LinkedHashMap<>();
+        if (agentArgs == null) {
+            return arguments;
+        }
+        for (String token : agentArgs.split(";")) {
+            token = token.trim();
+            if (token.isEmpty()) {
+                continue;
+            }
+            int equals = token.indexOf('=');
+            if (equals < 0) {
+                arguments.put(RoutePolicy.HOOKS_PROPERTY, token);
+                continue;
+            }
+            String key = token.substring(0, equals).trim();
+            arguments.put(key.startsWith(PREFIX) ? key : PREFIX + key, token.substring(equals + 1).trim());
+        }
+        return arguments;
+    }
+}
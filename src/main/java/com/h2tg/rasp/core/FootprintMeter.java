@@ -0,0 +1,223 @@
+package com.h2tg.rasp.core;
+
+import com.h2tg.rasp.log.MicroLogger;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Footprint accounting for the installed agent.
+ *
+ * Reports:
+ * - Loaded classes of the agent and its shaded dependencies (metaspace)
+ * - Estimated heap retained by the runtime roots (installed transformer, registries)
+ *
+ * The heap figure is a bounded reachability walk summing Instrumentation.getObjectSize.
+ * Class objects, class loaders, threads and Instrumentation are not descended into,
+ * JDK internals that are not reflectively accessible are counted shallow,
+ * so the figure is a lower bound.
+ */
+public class FootprintMeter {
+
+    /**
+     * Upper bound of objects visited by one heap walk
+     */
+    private static final int MAX_OBJECTS = 500_000;
+
+    private static volatile Report lastReport;
+
+    private FootprintMeter() {}
+
+    /**
+     * Measure the agent footprint and remember the result
+     *
+     * @param inst Instrumentation instance
+     * @param roots Objects kept reachable by the agent after installation
+     * @return Footprint report
+     */
+    public static Report measure(Instrumentation inst, Object... roots) {
+        int agentClasses = 0;
+        int byteBuddyClasses = 0;
+        int reflectionsClasses = 0;
+        int javassistClasses = 0;
+
+        // Shade plugin relocates these literals together with the packages
+        for (Class<?> clazz : inst.getAllLoadedClasses()) {
+            String name = clazz.getName();
+            if (name.startsWith("net.bytebuddy.")) {
+                byteBuddyClasses++;
+            } else if (name.startsWith("org.reflections.")) {
+                reflectionsClasses++;
+            } else if (name.startsWith("javassist.")) {
+                javassistClasses++;
+            } else if (name.startsWith("com.h2tg.rasp.")) {
+                agentClasses++;
+            }
+        }
+
+        long[] heap = walk(inst, roots);
+        Report report = new Report(agentClasses, byteBuddyClasses, reflectionsClasses, javassistClasses,
+                heap[0], heap[1]);
+        lastReport = report;
+        return report;
+    }
+
+    /**
+     * Get the report of the last measurement, null if never measured
+     */
+    public static Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Sum shallow sizes of all objects reachable from the roots
+     *
+     * @return {bytes, objects}
+     */
+    private static long[] walk(Instrumentation inst, Object... roots) {
+        IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<>();
+        ArrayDeque<Object> pending = new ArrayDeque<>();
+        for (Object root : roots) {
+            if (root != null) {
+                pending.push(root);
+            }
+        }
+
+        long bytes = 0;
+        while (!pending.isEmpty() && visited.size() < MAX_OBJECTS) {
+            Object obj = pending.pop();
+            if (visited.put(obj, Boolean.TRUE) != null) {
+                continue;
+            }
+            bytes += inst.getObjectSize(obj);
+
+            Class<?> clazz = obj.getClass();
+            if (clazz.isArray()) {
+                if (!clazz.getComponentType().isPrimitive()) {
+                    int length = Array.getLength(obj);
+                    for (int i = 0; i < length; i++) {
+                        push(pending, visited, Array.get(obj, i));
+                    }
+                }
+                continue;
+            }
+
+            boolean descended = false;
+            for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        push(pending, visited, field.get(obj));
+                        descended = true;
+                    } catch (Throwable t) {
+                        // Inaccessible JDK internals (JDK 9+): handled below for collections
+                    }
+                }
+            }
+
+            if (!descended) {
+                if (obj instanceof Collection && clazz.getName().startsWith("java.util.")) {
+                    for (Object element : (Collection<?>) obj) {
+                        push(pending, visited, element);
+                    }
+                } else if (obj instanceof Map && clazz.getName().startsWith("java.util.")) {
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+                        push(pending, visited, entry.getKey());
+                        push(pending, visited, entry.getValue());
+                    }
+                }
+            }
+        }
+        return new long[]{bytes, visited.size()};
+    }
+
+    private static void push(ArrayDeque<Object> pending, IdentityHashMap<Object, Boolean> visited, Object obj) {
+        if (obj == null || visited.containsKey(obj)) {
+            return;
+        }
+        // Shared JVM structures are not attributed to the agent
+        if (obj instanceof Class || obj instanceof ClassLoader || obj instanceof Thread
+                || obj instanceof Instrumentation) {
+            return;
+        }
+        pending.push(obj);
+    }
+
+    /**
+     * Log the report
+     */
+    public static void logReport(Report report) {
+        for (String line : report.toString().split("\n")) {
+            MicroLogger.info("Footprint", line);
+        }
+    }
+
+    /**
+     * Immutable footprint snapshot
+     */
+    public static class Report {
+        private final int agentClasses;
+        private final int byteBuddyClasses;
+        private final int reflectionsClasses;
+        private final int javassistClasses;
+        private final long retainedBytes;
+        private final long retainedObjects;
+
+        Report(int agentClasses, int byteBuddyClasses, int reflectionsClasses, int javassistClasses,
+               long retainedBytes, long retainedObjects) {
+            this.agentClasses = agentClasses;
+            this.byteBuddyClasses = byteBuddyClasses;
+            this.reflectionsClasses = reflectionsClasses;
+            this.javassistClasses = javassistClasses;
+            this.retainedBytes = retainedBytes;
+            this.retainedObjects = retainedObjects;
+        }
+
+        public int getAgentClasses() {
+            return agentClasses;
+        }
+
+        public int getByteBuddyClasses() {
+            return byteBuddyClasses;
+        }
+
+        public int getReflectionsClasses() {
+            return reflectionsClasses;
+        }
+
+        public int getJavassistClasses() {
+            return javassistClasses;
+        }
+
+        public int getLoadedClasses() {
+            return agentClasses + byteBuddyClasses + reflectionsClasses + javassistClasses;
+        }
+
+        public long getRetainedBytes() {
+            return retainedBytes;
+        }
+
+        public long getRetainedObjects() {
+            return retainedObjects;
+        }
+
+        @Override
+        public String toString() {
+            return "Agent footprint: " + getLoadedClasses() + " loaded class(es), ~"
+                    + (retainedBytes / 1024) + " KB retained heap (" + retainedObjects + " objects)\n"
+                    + "  agent classes: " + agentClasses + "\n"
+                    + "  shaded Byte Buddy classes: " + byteBuddyClasses + "\n"
+                    + "  shaded Reflections classes: " + reflectionsClasses + "\n"
+                    + "  shaded Javassist classes: " + javassistClasses;
+        }
+    }
+}
@@ -6,22 +6,51 @@ import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.utility.JavaModule;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Listener for Byte Buddy agent transformations.
- * Logs transformation events and errors.
+ * Records per-type matching/transformation time into {@link StartupProfiler} while the agent installs
+ * (nothing once recording stops, classes loaded later only pay a volatile read)
+ * and logs transformation events (debug) and errors.
  */
 public class HookListener extends AgentBuilder.Listener.Adapter {
 
+    /**
+     * Discovery timestamp of the type currently being processed on this thread
+     */
+    private final ThreadLocal<long[]> discoveryStart = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private final StartupProfiler profiler = StartupProfiler.getInstance();
+
+    @Override
+    public void onDiscovery(String typeName,
+                            ClassLoader classLoader,
+                            JavaModule module,
+                            boolean loaded) {
+        if (profiler.isRecording()) {
+            discoveryStart.get()[0] = System.nanoTime();
+        }
+    }
+
     @Override
     public void onTransformation(TypeDescription typeDescription,
                                  ClassLoader classLoader,
                                  JavaModule module,
                                  boolean loaded,
                                  DynamicType dynamicType) {
-        MicroLogger.info("ByteBuddy", String.format("TRANSFORM %s [loaded=%s, classLoader=%s]",
-                typeDescription.getName(),
-                loaded,
-                classLoader != null ? classLoader.getClass().getName() : "Bootstrap"));
+        if (profiler.isRecording()) {
+            profiler.recordTransformed(typeDescription.getName(), elapsed());
+        }
+        MicroLogger.debug("ByteBuddy", "TRANSFORM " + typeDescription.getName()
+                + " [loaded=" + loaded
+                + ", classLoader=" + (classLoader != null ? classLoader.getClass().getName() : "Bootstrap") + "]");
     }
 
     @Override
@@ -30,6 +59,7 @@ public class HookListener extends AgentBuilder.Listener.Adapter {
                         JavaModule module,
                         boolean loaded,
                         Throwable throwable) {
+        profiler.recordError();
         MicroLogger.error("ByteBuddy", String.format("ERROR transforming %s [loaded=%s]",
                 typeName,
                 loaded), throwable);
@@ -40,7 +70,51 @@ public class HookListener extends AgentBuilder.Listener.Adapter {
                           ClassLoader classLoader,
                           JavaModule module,
                           boolean loaded) {
+        if (profiler.isRecording()) {
+            profiler.recordIgnored(elapsed());
+        }
         // Uncomment for debugging
         // RaspLog.info("ByteBuddy", String.format("IGNORED %s", typeDescription.getName()));
     }
+
+    private long elapsed() {
+        long start = discoveryStart.get()[0];
+        return start == 0L ? 0L : System.nanoTime() - start;
+    }
+
+    /**
+     * Redefinition listener marking the retransformation window of already loaded classes
+     */
+    public static class RetransformationListener extends AgentBuilder.RedefinitionStrategy.Listener.Adapter {
+
+        private long start;
+
+        @Override
+        public void onBatch(int index, List<Class<?>> batch, List<Class<?>> types) {
+            if (index == 0) {
+                start = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void onComplete(int amount,
+                               List<Class<?>> types,
+                               Map<List<Class<?>>, Throwable> failures) {
+            StartupProfiler profiler = StartupProfiler.getInstance();
+            if (start != 0L) {
+                profiler.record(StartupProfiler.Phase.RETRANSFORMATION, System.nanoTime() - start);
+            }
+            // Batches are split until they fail alone, each class left unhooked is an error
+            int failed = 0;
+            for (Map.Entry<List<Class<?>>, Throwable> failure : failures.entrySet()) {
+                for (Class<?> type : failure.getKey()) {
+                    failed++;
+                    profiler.recordError();
+                    MicroLogger.error("ByteBuddy", "Failed to retransform " + type.getName() + ", it stays unhooked", failure.getValue());
+                }
+            }
+            MicroLogger.info("ByteBuddy", "Retransformed " + (types.size() - failed) + " of " + types.size() + " loaded class(es) in "
+                    + amount + " batch(es), " + failures.size() + " failed batch(es)");
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.h2tg.rasp.core;
 
 import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
 import com.h2tg.rasp.log.MicroLogger;
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.asm.Advice;
@@ -12,19 +13,32 @@ import org.reflections.Reflections;
 import org.reflections.scanners.SubTypesScanner;
 import org.reflections.scanners.TypeAnnotationsScanner;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 import static net.bytebuddy.matcher.ElementMatchers.*;
 
 /**
  * Registry for automatically discovering and registering hooks.
  * Scans for classes annotated with @HookHandler and registers them with Byte Buddy.
+ * Handlers of hooks outside the hook profile (RoutePolicy.ENABLED) are dropped at discovery,
+ * no matcher or transformer is built for them. Native handlers are dropped on dynamic attach,
+ * where their attachOnly substitutes are installed instead.
  */
 public class HookRegistry {
 
     private static HookRegistry instance;
     private static final String HOOKS_PACKAGE = "com.h2tg.rasp.hooks";
     private Set<Class<?>> handlers;
+    private boolean attached;
 
     private HookRegistry() {}
 
@@ -45,6 +59,13 @@ public class HookRegistry {
         return instance;
     }
 
+    /**
+     * Select handlers for a dynamic attach (attachOnly substitutes) or a -javaagent start (native hooks)
+     */
+    public void setAttached(boolean attached) {
+        this.attached = attached;
+    }
+
     /**
      * Scan hooks package for @HookHandler annotations
      */
@@ -57,10 +78,41 @@ public class HookRegistry {
                     new TypeAnnotationsScanner(),
                     new SubTypesScanner(false)
             );
-            handlers = reflections.getTypesAnnotatedWith(HookHandler.class);
+            handlers = select(reflections.getTypesAnnotatedWith(HookHandler.class));
 
             MicroLogger.info("HookRegistry", "Discovered " + handlers.size() + " hook handler(s) in package " + HOOKS_PACKAGE);
 
+            // Log each discovered handler
+            for (Class<?> handler : handlers) {
+                MicroLogger.info("HookRegistry", "  - " + handler.getName());
+            }
+        } catch (Throwable t) {
+            // Reflections finds no URLs for the package when the agent jar was appended by dynamic attach
+            MicroLogger.warn("HookRegistry", "Reflections scan failed (" + t.getMessage() + "), falling back to code source scan");
+            scanHooksFromCodeSource();
+        }
+    }
+
+    /**
+     * Scan hooks package for @HookHandler annotations without Reflections.
+     * Lists class files of the hooks package in the agent's own code source (jar or directory),
+     * so the shaded Reflections and Javassist classes are never loaded (slim footprint).
+     */
+    public void scanHooksFromCodeSource() {
+        try {
+            ClassLoader loader = HookRegistry.class.getClassLoader();
+            List<String> classNames = listHookClassNames();
+            Set<Class<?>> found = new LinkedHashSet<>();
+            for (String className : classNames) {
+                Class<?> clazz = Class.forName(className, false, loader);
+                if (clazz.isAnnotationPresent(HookHandler.class)) {
+                    found.add(clazz);
+                }
+            }
+            handlers = select(found);
+
+            MicroLogger.info("HookRegistry", "Discovered " + handlers.size() + " hook handler(s) in package " + HOOKS_PACKAGE + " (code source scan)");
+
             // Log each discovered handler
             for (Class<?> handler : handlers) {
                 MicroLogger.info("HookRegistry", "  - " + handler.getName());
@@ -71,6 +123,148 @@ public class HookRegistry {
         }
     }
 
+    /**
+     * Keep the handlers of hooks selected by the hook profile and the handlers every hook depends on
+     */
+    private Set<Class<?>> select(Set<Class<?>> found) {
+        Set<Class<?>> selected = new LinkedHashSet<>();
+        StringBuilder nativeSkipped = new StringBuilder();
+        int skipped = 0;
+        for (Class<?> handler : found) {
+            HookHandler anno = handler.getAnnotation(HookHandler.class);
+            if (anno == null || (anno.hook() != 0 && !RoutePolicy.isActive(RoutePolicy.ENABLED, anno.hook()))) {
+                skipped++;
+                continue;
+            }
+            if (anno.attachOnly() && !attached) {
+                continue;
+            }
+            if (anno.isNative() && attached) {
+                nativeSkipped.append(nativeSkipped.length() > 0 ? ", " : "").append(anno.hookClass()).append('#').append(anno.hookMethod());
+                continue;
+            }
+            selected.add(handler);
+        }
+        if (skipped > 0) {
+            MicroLogger.info("HookRegistry", "Hook profile " + RoutePolicy.format(RoutePolicy.ALL) + " skips "
+                    + skipped + " hook handler(s)");
+        }
+        if (nativeSkipped.length() > 0) {
+            MicroLogger.warn("HookRegistry", "Dynamic attach cannot hook native methods (" + nativeSkipped
+                    + "): command execution is checked at ProcessImpl.start instead, restart with -javaagent for the native hooks");
+        }
+        return selected;
+    }
+
+    /**
+     * List class names of the hooks package in the code source of this class
+     */
+    private static List<String> listHookClassNames() throws Exception {
+        String packagePath = HOOKS_PACKAGE.replace('.', '/') + "/";
+        List<String> classNames = new ArrayList<>();
+        File source = new File(HookRegistry.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        if (source.isDirectory()) {
+            File[] files = new File(source, packagePath).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    if (name.endsWith(".class")) {
+                        classNames.add(HOOKS_PACKAGE + "." + name.substring(0, name.length() - ".class".length()));
+                    }
+                }
+            }
+            return classNames;
+        }
+
+        try (JarFile jar = new JarFile(source)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith(packagePath) && name.endsWith(".class")
+                        && name.indexOf('/', packagePath.length()) < 0) {
+                    classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                }
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * Release install-only state once the agent is installed.
+     * Hook handler classes stay reachable through the installed transformer.
+     */
+    public static void release() {
+        if (instance != null) {
+            instance.handlers = null;
+            instance = null;
+            MicroLogger.info("HookRegistry", "HookRegistry released");
+        }
+    }
+
+    /**
+     * Widest defining loader scope over all discovered hooks.
+     * Types outside it cannot be the target of any hook and can be ignored before name matching.
+     */
+    public HookHandler.LoaderScope getWidestLoaderScope() {
+        HookHandler.LoaderScope widest = HookHandler.LoaderScope.BOOTSTRAP;
+        if (handlers == null || handlers.isEmpty()) {
+            return HookHandler.LoaderScope.ANY;
+        }
+        for (Class<?> handlerClass : handlers) {
+            HookHandler anno = handlerClass.getAnnotation(HookHandler.class);
+            if (anno == null) {
+                continue;
+            }
+            if (anno.loaderScope() == HookHandler.LoaderScope.ANY) {
+                return HookHandler.LoaderScope.ANY;
+            }
+            if (anno.loaderScope() == HookHandler.LoaderScope.PLATFORM) {
+                widest = HookHandler.LoaderScope.PLATFORM;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Hook target class names with the widest loader scope hooking each,
+     * used to find already loaded targets when retransformation is deferred
+     */
+    public Map<String, HookHandler.LoaderScope> getTargets() {
+        Map<String, HookHandler.LoaderScope> targets = new HashMap<>();
+        if (handlers == null) {
+            return targets;
+        }
+        for (Class<?> handlerClass : handlers) {
+            HookHandler anno = handlerClass.getAnnotation(HookHandler.class);
+            if (anno == null) {
+                continue;
+            }
+            HookHandler.LoaderScope scope = anno.loaderScope();
+            HookHandler.LoaderScope previous = targets.get(anno.hookClass());
+            if (previous == HookHandler.LoaderScope.ANY
+                    || (previous == HookHandler.LoaderScope.PLATFORM && scope == HookHandler.LoaderScope.BOOTSTRAP)) {
+                scope = previous;
+            }
+            targets.put(anno.hookClass(), scope);
+        }
+        return targets;
+    }
+
+    /**
+     * Class loader matcher of a loader scope
+     */
+    public static ElementMatcher.Junction<ClassLoader> loaderMatcher(HookHandler.LoaderScope scope) {
+        switch (scope) {
+            case BOOTSTRAP:
+                return isBootstrapClassLoader();
+            case PLATFORM:
+                return ElementMatchers.<ClassLoader>isBootstrapClassLoader().or(isExtensionClassLoader());
+            default:
+                return any();
+        }
+    }
+
     /**
      * Apply all discovered hooks to the AgentBuilder
      */
@@ -106,9 +300,12 @@ public class HookRegistry {
         final String[] parameterTypes = anno.parameterTypes();
         final boolean isConstructor = anno.isConstructor();
         final boolean isNative = anno.isNative();
+        final HookHandler.LoaderScope loaderScope = anno.loaderScope();
 
-        // Build type matcher
+        // Build type matcher, the loader matcher is evaluated first so JDK-only hooks
+        // never compare names of types defined by application loaders
         ElementMatcher.Junction<TypeDescription> typeMatcher = ElementMatchers.named(targetClassName);
+        ElementMatcher.Junction<ClassLoader> classLoaderMatcher = loaderMatcher(loaderScope);
 
         // Build method matcher
         ElementMatcher.Junction<MethodDescription> methodMatcher;
@@ -119,7 +316,7 @@ public class HookRegistry {
         }
 
         // Handle parameter matching
-        if (parameterTypes.length > 0 && !parameterTypes[0].equals("*")) {
+        if (parameterTypes.length == 0 || !parameterTypes[0].equals("*")) {
             methodMatcher = methodMatcher.and(takesArguments(parameterTypes.length));
             for (int i = 0; i < parameterTypes.length; i++) {
                 String paramType = parameterTypes[i];
@@ -141,24 +338,25 @@ public class HookRegistry {
         if (isNative) {
             // For native methods, use intercept
             agentBuilder = agentBuilder
-                    .type(typeMatcher)
+                    .type(typeMatcher, classLoaderMatcher)
                     .transform((builder, typeDesc, classLoader, module, protectionDomain) ->
                             builder.method(finalMethodMatcher).intercept(Advice.to(adviceClass))
                     );
         } else {
             // For non-native methods, use visit
             agentBuilder = agentBuilder
-                    .type(typeMatcher)
+                    .type(typeMatcher, classLoaderMatcher)
                     .transform((builder, typeDesc, classLoader, module, protectionDomain) ->
                             builder.visit(Advice.to(adviceClass).on(finalMethodMatcher))
                     );
         }
 
         // Log registration
-        MicroLogger.info("HookRegistry", String.format("Registered hook: target=%s#%s isNative=%s advice=%s",
+        MicroLogger.info("HookRegistry", String.format("Registered hook: target=%s#%s isNative=%s loader=%s advice=%s",
                 targetClassName,
                 isConstructor ? "<init>" : targetMethod,
                 isNative,
+                loaderScope,
                 adviceClass.getName()));
 
         return agentBuilder;
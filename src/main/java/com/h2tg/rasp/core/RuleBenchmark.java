@@ -0,0 +1,183 @@
+package com.h2tg.rasp.core;
+
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleMatcher;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares interpreted and compiled evaluation of a rule set on the same calls.
+ * Subjects, request methods and request paths are derived from the rule literals (hits) plus typical misses,
+ * each subject is evaluated outside any request and within sample requests (read through RequestShape like
+ * Undertow exchanges), and every call is first checked to give the same result on both matchers.
+ *
+ * Usage: java -jar MicroRASP.jar rules rules.txt (a sample rule file is loadtest/rules-sample.txt)
+ */
+public class RuleBenchmark {
+
+    private static final int[] HOOKS = {
+            RoutePolicy.DESERIALIZE, RoutePolicy.JNDI, RoutePolicy.PROCESS, RoutePolicy.RMI, RoutePolicy.JNI, RoutePolicy.EXPRESSION,
+            RoutePolicy.NETWORK, RoutePolicy.XXE, RoutePolicy.REFLECTION, RoutePolicy.SHELL, RoutePolicy.BODY
+    };
+
+    private static final String[] MISSES = {
+            "java.util.HashMap",
+            "com.example.dto.UserProfile",
+            "/bin/ls -la /tmp",
+            "java:comp/env/jdbc/app",
+            "libnet.so",
+            "#user.name + ' ' + #user.roles[0]"
+    };
+
+    private static final String[] METHOD_MISSES = {"GET", "POST"};
+
+    private static final String[] PATH_MISSES = {"/", "/index.html"};
+
+    private static final int ROUNDS = 5;
+    private static final long ROUND_NANOS = 200_000_000L;
+
+    private RuleBenchmark() {}
+
+    /**
+     * Verify and benchmark a rule set
+     *
+     * @return false if the compiled matcher disagrees with the interpreter
+     */
+    public static boolean run(RuleSet ruleSet, PrintStream out) throws Exception {
+        RuleMatcher interpreted = ruleSet.interpreter();
+        long start = System.nanoTime();
+        RuleMatcher compiled = RuleCompiler.compile(ruleSet);
+        out.println(String.format("Compiled %d rule(s) from %s in %.1f ms (%s)", ruleSet.getRules().size(),
+                ruleSet.getOrigin(), (System.nanoTime() - start) / 1e6, compiled.getClass().getName()));
+
+        String[] subjects = samples(ruleSet, RuleSet.FIELD_SUBJECT, MISSES);
+        Object[] requests = requests(ruleSet);
+        int mismatches = 0;
+        for (int hook : HOOKS) {
+            for (String subject : subjects) {
+                for (Object request : requests) {
+                    int expected = interpreted.match(hook, subject, request);
+                    int actual = compiled.match(hook, subject, request);
+                    if (expected != actual) {
+                        mismatches++;
+                        out.println("MISMATCH hook=" + hook + " subject=" + subject + " request=" + request
+                                + " interpreted=" + expected + " compiled=" + actual);
+                    }
+                }
+            }
+        }
+        out.println((long) HOOKS.length * subjects.length * requests.length + " sample call(s) checked ("
+                + (requests.length - 1) + " sample request(s) and none), " + mismatches + " mismatch(es)");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            double interpretedNanos = measure(interpreted, subjects, requests);
+            double compiledNanos = measure(compiled, subjects, requests);
+            out.println(String.format("round %d: interpreted %.1f ns/call, compiled %.1f ns/call (%.1fx)",
+                    round, interpretedNanos, compiledNanos, interpretedNanos / compiledNanos));
+        }
+        return mismatches == 0;
+    }
+
+    private static double measure(RuleMatcher matcher, String[] subjects, Object[] requests) {
+        long calls = 0;
+        int sink = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int hook : HOOKS) {
+                for (String subject : subjects) {
+                    for (Object request : requests) {
+                        sink += matcher.match(hook, subject, request);
+                    }
+                }
+            }
+            calls += (long) HOOKS.length * subjects.length * requests.length;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        if (sink == 42) {
+            // Keep the result alive
+            System.out.print("");
+        }
+        return (double) elapsed / calls;
+    }
+
+    /**
+     * No request, then one sample request per method and path sample
+     */
+    private static Object[] requests(RuleSet ruleSet) {
+        String[] methods = samples(ruleSet, RuleSet.FIELD_METHOD, METHOD_MISSES);
+        String[] paths = samples(ruleSet, RuleSet.FIELD_PATH, PATH_MISSES);
+        Object[] requests = new Object[1 + methods.length * paths.length];
+        int i = 1;
+        for (String method : methods) {
+            for (String path : paths) {
+                requests[i++] = new SampleRequest(method, path);
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Hits built from the literals of the rule conditions on one field ('*' expanded), plus fixed misses
+     */
+    private static String[] samples(RuleSet ruleSet, int field, String[] misses) {
+        List<String> samples = new ArrayList<>();
+        for (RuleSet.Rule rule : ruleSet.getRules()) {
+            for (RuleSet.Condition condition : rule.conditions) {
+                if (condition.field != field) {
+                    continue;
+                }
+                String hit = condition.literal.replace("*", "x");
+                switch (condition.op) {
+                    case RuleSet.OP_STARTS_WITH:
+                        hit = hit + ".Tail";
+                        break;
+                    case RuleSet.OP_ENDS_WITH:
+                        hit = "head." + hit;
+                        break;
+                    case RuleSet.OP_CONTAINS:
+                        hit = "head." + hit + ".Tail";
+                        break;
+                    default:
+                        break;
+                }
+                if (!samples.contains(hit)) {
+                    samples.add(hit);
+                }
+            }
+        }
+        for (String miss : misses) {
+            samples.add(miss);
+        }
+        return samples.toArray(new String[0]);
+    }
+
+    /**
+     * Request with the accessors of an Undertow exchange, so RequestShape reads its method and path
+     */
+    public static class SampleRequest {
+
+        private final String method;
+        private final String path;
+
+        SampleRequest(String method, String path) {
+            this.method = method;
+            this.path = path;
+        }
+
+        public String getRequestMethod() {
+            return method;
+        }
+
+        public String getRequestPath() {
+            return path;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + path;
+        }
+    }
+}
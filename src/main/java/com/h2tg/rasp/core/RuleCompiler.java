@@ -0,0 +1,207 @@
+package com.h2tg.rasp.core;
+
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.RuleMatcher;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.asm.AsmVisitorWrapper;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.Label;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+/**
+ * Compiles a RuleSet into a RuleMatcher subclass with straight-line bytecode:
+ * one hook-mask test and one inlined String test per condition, no loops, no rule objects.
+ * Each generation is defined in its own class loader (parent: the loader of RuleMatcher, the bootstrap loader
+ * inside the agent), so a replaced rule set is unloaded once no hook call references it.
+ */
+public class RuleCompiler {
+
+    private static final String STRING = "java/lang/String";
+    private static final String RULE_ENGINE = RuleEngine.class.getName().replace('.', '/');
+
+    // Locals of match(int hook, String subject, Object request)
+    private static final int HOOK = 1;
+    private static final int SUBJECT = 2;
+    private static final int REQUEST = 3;
+    private static final int VALUE = 4;
+    private static final int POSITION = 5;
+
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    private RuleCompiler() {}
+
+    /**
+     * Generate, load and instantiate the matcher of a rule set
+     */
+    public static RuleMatcher compile(RuleSet ruleSet) throws Exception {
+        Class<? extends RuleMatcher> type = new ByteBuddy()
+                .subclass(RuleMatcher.class, ConstructorStrategy.Default.IMITATE_SUPER_CLASS_OPENING)
+                .name(RuleMatcher.class.getName() + "$Compiled" + generation.incrementAndGet())
+                .method(named("match"))
+                .intercept(new Implementation.Simple(new MatchAppender(ruleSet.getRules())))
+                .visit(new AsmVisitorWrapper.ForDeclaredMethods().writerFlags(ClassWriter.COMPUTE_FRAMES))
+                .make()
+                .load(RuleMatcher.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                .getLoaded();
+        return type.getConstructor(String[].class).newInstance((Object) ruleSet.sources());
+    }
+
+    /**
+     * Emits the body of match()
+     */
+    static class MatchAppender implements ByteCodeAppender {
+        private final List<RuleSet.Rule> rules;
+
+        MatchAppender(List<RuleSet.Rule> rules) {
+            this.rules = rules;
+        }
+
+        @Override
+        public Size apply(MethodVisitor mv, Implementation.Context context, MethodDescription method) {
+            for (int r = 0; r < rules.size(); r++) {
+                RuleSet.Rule rule = rules.get(r);
+                Label next = new Label();
+
+                mv.visitVarInsn(Opcodes.ILOAD, HOOK);
+                mv.visitLdcInsn(rule.hooks);
+                mv.visitInsn(Opcodes.IAND);
+                mv.visitJumpInsn(Opcodes.IFEQ, next);
+
+                for (RuleSet.Condition condition : rule.conditions) {
+                    if (condition.negated) {
+                        Label isFalse = new Label();
+                        test(mv, condition, isFalse);
+                        mv.visitJumpInsn(Opcodes.GOTO, next);
+                        mv.visitLabel(isFalse);
+                    } else {
+                        test(mv, condition, next);
+                    }
+                }
+
+                mv.visitLdcInsn((r << RuleEngine.RULE_SHIFT) | rule.verdict);
+                mv.visitInsn(Opcodes.IRETURN);
+                mv.visitLabel(next);
+            }
+            mv.visitInsn(Opcodes.ICONST_0);
+            mv.visitInsn(Opcodes.IRETURN);
+            return new Size(6, POSITION + 1);
+        }
+
+        /**
+         * Fall through when the condition holds, jump to onFalse otherwise
+         */
+        private static void test(MethodVisitor mv, RuleSet.Condition condition, Label onFalse) {
+            if (condition.field == RuleSet.FIELD_REQUEST) {
+                mv.visitVarInsn(Opcodes.ALOAD, REQUEST);
+                mv.visitJumpInsn(Opcodes.IFNULL, onFalse);
+                return;
+            }
+
+            if (condition.op == RuleSet.OP_MATCHES && condition.globParts.length > 1) {
+                glob(mv, condition, onFalse);
+                return;
+            }
+
+            loadValue(mv, condition.field);
+            mv.visitLdcInsn(condition.literal);
+            switch (condition.op) {
+                case RuleSet.OP_STARTS_WITH:
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "startsWith", "(Ljava/lang/String;)Z", false);
+                    break;
+                case RuleSet.OP_ENDS_WITH:
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "endsWith", "(Ljava/lang/String;)Z", false);
+                    break;
+                case RuleSet.OP_CONTAINS:
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "contains", "(Ljava/lang/CharSequence;)Z", false);
+                    break;
+                default:
+                    // OP_IS, and OP_MATCHES without wildcard
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "equals", "(Ljava/lang/Object;)Z", false);
+                    break;
+            }
+            mv.visitJumpInsn(Opcodes.IFEQ, onFalse);
+        }
+
+        /**
+         * Unrolled RuleSet.globMatches for one literal
+         */
+        private static void glob(MethodVisitor mv, RuleSet.Condition condition, Label onFalse) {
+            String[] parts = condition.globParts;
+            String first = parts[0];
+            String last = parts[parts.length - 1];
+
+            loadValue(mv, condition.field);
+            mv.visitVarInsn(Opcodes.ASTORE, VALUE);
+
+            int minLength = first.length() + last.length();
+            if (minLength > 0) {
+                mv.visitVarInsn(Opcodes.ALOAD, VALUE);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "length", "()I", false);
+                mv.visitLdcInsn(minLength);
+                mv.visitJumpInsn(Opcodes.IF_ICMPLT, onFalse);
+            }
+            if (!first.isEmpty()) {
+                mv.visitVarInsn(Opcodes.ALOAD, VALUE);
+                mv.visitLdcInsn(first);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "startsWith", "(Ljava/lang/String;)Z", false);
+                mv.visitJumpInsn(Opcodes.IFEQ, onFalse);
+            }
+            if (!last.isEmpty()) {
+                mv.visitVarInsn(Opcodes.ALOAD, VALUE);
+                mv.visitLdcInsn(last);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "endsWith", "(Ljava/lang/String;)Z", false);
+                mv.visitJumpInsn(Opcodes.IFEQ, onFalse);
+            }
+
+            boolean middle = false;
+            for (int i = 1; i < parts.length - 1; i++) {
+                if (parts[i].isEmpty()) {
+                    continue;
+                }
+                if (!middle) {
+                    mv.visitLdcInsn(first.length());
+                    mv.visitVarInsn(Opcodes.ISTORE, POSITION);
+                    middle = true;
+                }
+                mv.visitVarInsn(Opcodes.ALOAD, VALUE);
+                mv.visitLdcInsn(parts[i]);
+                mv.visitVarInsn(Opcodes.ILOAD, POSITION);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "indexOf", "(Ljava/lang/String;I)I", false);
+                mv.visitInsn(Opcodes.DUP);
+                mv.visitVarInsn(Opcodes.ISTORE, POSITION);
+                mv.visitJumpInsn(Opcodes.IFLT, onFalse);
+                mv.visitIincInsn(POSITION, parts[i].length());
+            }
+            if (middle) {
+                mv.visitVarInsn(Opcodes.ILOAD, POSITION);
+                mv.visitVarInsn(Opcodes.ALOAD, VALUE);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING, "length", "()I", false);
+                mv.visitLdcInsn(last.length());
+                mv.visitInsn(Opcodes.ISUB);
+                mv.visitJumpInsn(Opcodes.IF_ICMPGT, onFalse);
+            }
+        }
+
+        private static void loadValue(MethodVisitor mv, int field) {
+            if (field == RuleSet.FIELD_SUBJECT) {
+                mv.visitVarInsn(Opcodes.ALOAD, SUBJECT);
+                return;
+            }
+            mv.visitVarInsn(Opcodes.ALOAD, REQUEST);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, RULE_ENGINE,
+                    field == RuleSet.FIELD_METHOD ? "requestMethod" : "requestPath",
+                    "(Ljava/lang/Object;)Ljava/lang/String;", false);
+        }
+    }
+}
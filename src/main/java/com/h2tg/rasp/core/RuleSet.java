@@ -0,0 +1,390 @@
+package com.h2tg.rasp.core;
+
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.RuleMatcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parsed policy rule set, consulted by hooks before their built-in checks.
+ * Compiled into bytecode by RuleCompiler, interpreter() is the reference implementation used for
+ * validation, benchmarking and as fallback if compilation fails.
+ *
+ * One rule per line, '#' starts a comment, the first matching rule decides:
+ *
+ *   rule      := action hooks [ "when" condition { "and" condition } ]
+ *   action    := "allow" | "monitor" | "block"
+ *   hooks     := hook { "," hook }          (deserialize, jndi, process, rmi, jni, expression, network, xxe, reflection, shell, all)
+ *   condition := [ "not" ] ( "request" | field op "literal" )
+ *   field     := "subject" | "method" | "path"
+ *   op        := "is" | "startsWith" | "endsWith" | "contains" | "matches"   (matches: '*' glob)
+ *
+ * The subject is the value each hook checks: deserialized class name, command line, JNDI name or
+ * factory class, RMI codebase, native library name, SpEL/OGNL/MVEL expression,
+ * connect endpoint ("host/address:port") or URL, external XML system id,
+ * reflective sink ("Class#method", "Class#<init>" or the class name for Class.forName),
+ * class defined at runtime (shell). "allow" skips the built-in checks of that call.
+ *
+ * Example:
+ *   block deserialize when subject matches "org.apache.commons.collections*.functors.*"
+ *   allow process when request and path startsWith "/internal/build" and subject startsWith "/usr/bin/git "
+ *   monitor jndi when subject startsWith "dns:"
+ */
+public class RuleSet {
+
+    /**
+     * Rule file loaded at startup
+     */
+    public static final String RULES_PROPERTY = "rasp.rules";
+
+    static final int FIELD_REQUEST = 0;
+    static final int FIELD_SUBJECT = 1;
+    static final int FIELD_METHOD = 2;
+    static final int FIELD_PATH = 3;
+
+    static final int OP_IS = 0;
+    static final int OP_STARTS_WITH = 1;
+    static final int OP_ENDS_WITH = 2;
+    static final int OP_CONTAINS = 3;
+    static final int OP_MATCHES = 4;
+
+    private static final String[] FIELDS = {"request", "subject", "method", "path"};
+    private static final String[] OPS = {"is", "startsWith", "endsWith", "contains", "matches"};
+    private static final String[] ACTIONS = {null, "allow", "monitor", "block"};
+
+    private final String origin;
+    private final List<Rule> rules;
+
+    private RuleSet(String origin, List<Rule> rules) {
+        this.origin = origin;
+        this.rules = Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * Load a rule file
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a rule is invalid (message names the line)
+     */
+    public static RuleSet load(File file) throws IOException {
+        return parse(file.getPath(), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse rule lines
+     *
+     * @throws IllegalArgumentException if a rule is invalid (message names the line)
+     */
+    public static RuleSet parse(String origin, List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int comment = indexOfComment(line);
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                rules.add(parseRule(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(origin + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return new RuleSet(origin, rules);
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Rule source lines, indexed by rule number
+     */
+    public String[] sources() {
+        String[] sources = new String[rules.size()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = rules.get(i).source;
+        }
+        return sources;
+    }
+
+    /**
+     * Matcher walking the parsed rules, same semantics as the compiled one
+     */
+    public RuleMatcher interpreter() {
+        return new Interpreted(this);
+    }
+
+    /**
+     * Glob match with '*' wildcards, parts are the literal split at '*'
+     */
+    static boolean globMatches(String value, String[] parts) {
+        if (parts.length == 1) {
+            return value.equals(parts[0]);
+        }
+        String first = parts[0];
+        String last = parts[parts.length - 1];
+        if (value.length() < first.length() + last.length() || !value.startsWith(first) || !value.endsWith(last)) {
+            return false;
+        }
+        int position = first.length();
+        for (int i = 1; i < parts.length - 1; i++) {
+            if (parts[i].isEmpty()) {
+                continue;
+            }
+            position = value.indexOf(parts[i], position);
+            if (position < 0) {
+                return false;
+            }
+            position += parts[i].length();
+        }
+        return position <= value.length() - last.length();
+    }
+
+    private static Rule parseRule(String line) {
+        List<String> tokens = tokenize(line);
+        int verdict = indexOf(ACTIONS, tokens.get(0));
+        if (verdict <= 0) {
+            throw new IllegalArgumentException("expected allow, monitor or block but found '" + tokens.get(0) + "'");
+        }
+        if (tokens.size() < 2) {
+            throw new IllegalArgumentException("missing hook list");
+        }
+
+        int hooks = 0;
+        for (String hook : tokens.get(1).split(",")) {
+            hooks |= RoutePolicy.hookBit(hook.trim().toLowerCase(Locale.ROOT));
+        }
+
+        List<Condition> conditions = new ArrayList<>();
+        int i = 2;
+        if (i < tokens.size()) {
+            if (!"when".equals(tokens.get(i))) {
+                throw new IllegalArgumentException("expected 'when' but found '" + tokens.get(i) + "'");
+            }
+            i++;
+            while (true) {
+                boolean negated = false;
+                if (i < tokens.size() && "not".equals(tokens.get(i))) {
+                    negated = true;
+                    i++;
+                }
+                if (i >= tokens.size()) {
+                    throw new IllegalArgumentException("missing condition");
+                }
+                int field = indexOf(FIELDS, tokens.get(i++));
+                if (field < 0) {
+                    throw new IllegalArgumentException("unknown field '" + tokens.get(i - 1) + "'");
+                }
+                if (field == FIELD_REQUEST) {
+                    conditions.add(new Condition(negated, field, -1, null));
+                } else {
+                    if (i + 1 >= tokens.size()) {
+                        throw new IllegalArgumentException("incomplete condition on " + FIELDS[field]);
+                    }
+                    int op = indexOf(OPS, tokens.get(i++));
+                    if (op < 0) {
+                        throw new IllegalArgumentException("unknown operator '" + tokens.get(i - 1) + "'");
+                    }
+                    String literal = tokens.get(i++);
+                    if (!literal.startsWith("\"")) {
+                        throw new IllegalArgumentException("expected quoted literal but found '" + literal + "'");
+                    }
+                    conditions.add(new Condition(negated, field, op, unquote(literal)));
+                }
+                if (i >= tokens.size()) {
+                    break;
+                }
+                if (!"and".equals(tokens.get(i++))) {
+                    throw new IllegalArgumentException("expected 'and' but found '" + tokens.get(i - 1) + "'");
+                }
+            }
+        }
+        return new Rule(verdict, hooks, conditions.toArray(new Condition[0]), line);
+    }
+
+    /**
+     * Split on whitespace, keeping quoted literals (with their quotes) as one token
+     */
+    private static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            if (c == '"') {
+                i++;
+                while (i < line.length() && line.charAt(i) != '"') {
+                    i += line.charAt(i) == '\\' ? 2 : 1;
+                }
+                if (i >= line.length()) {
+                    throw new IllegalArgumentException("unterminated literal");
+                }
+                i++;
+            } else {
+                while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+                    i++;
+                }
+            }
+            tokens.add(line.substring(start, i));
+        }
+        return tokens;
+    }
+
+    private static String unquote(String literal) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < literal.length() - 1; i++) {
+            char c = literal.charAt(i);
+            if (c == '\\' && i + 1 < literal.length() - 1) {
+                c = literal.charAt(++i);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static int indexOfComment(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && quoted) {
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '#' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One parsed rule
+     */
+    public static class Rule {
+        final int verdict;
+        final int hooks;
+        final Condition[] conditions;
+        final String source;
+
+        Rule(int verdict, int hooks, Condition[] conditions, String source) {
+            this.verdict = verdict;
+            this.hooks = hooks;
+            this.conditions = conditions;
+            this.source = source;
+        }
+
+        public String getSource() {
+            return source;
+        }
+    }
+
+    /**
+     * One condition, globParts is the literal split at '*' for OP_MATCHES
+     */
+    static class Condition {
+        final boolean negated;
+        final int field;
+        final int op;
+        final String literal;
+        final String[] globParts;
+
+        Condition(boolean negated, int field, int op, String literal) {
+            this.negated = negated;
+            this.field = field;
+            this.op = op;
+            this.literal = literal;
+            this.globParts = op == OP_MATCHES ? literal.split("\\*", -1) : null;
+        }
+    }
+
+    /**
+     * Reference interpreter over the parsed rules
+     */
+    static class Interpreted extends RuleMatcher {
+        private final Rule[] rules;
+
+        Interpreted(RuleSet ruleSet) {
+            super(ruleSet.sources());
+            this.rules = ruleSet.rules.toArray(new Rule[0]);
+        }
+
+        @Override
+        public int match(int hook, String subject, Object request) {
+            for (int r = 0; r < rules.length; r++) {
+                Rule rule = rules[r];
+                if ((rule.hooks & hook) == 0) {
+                    continue;
+                }
+                boolean matched = true;
+                for (Condition condition : rule.conditions) {
+                    if (test(condition, subject, request) == condition.negated) {
+                        matched = false;
+                        break;
+                    }
+                }
+                if (matched) {
+                    return (r << RuleEngine.RULE_SHIFT) | rule.verdict;
+                }
+            }
+            return RuleEngine.NONE;
+        }
+
+        private static boolean test(Condition condition, String subject, Object request) {
+            String value;
+            switch (condition.field) {
+                case FIELD_REQUEST:
+                    return request != null;
+                case FIELD_SUBJECT:
+                    value = subject;
+                    break;
+                case FIELD_METHOD:
+                    value = RuleEngine.requestMethod(request);
+                    break;
+                default:
+                    value = RuleEngine.requestPath(request);
+                    break;
+            }
+            switch (condition.op) {
+                case OP_IS:
+                    return value.equals(condition.literal);
+                case OP_STARTS_WITH:
+                    return value.startsWith(condition.literal);
+                case OP_ENDS_WITH:
+                    return value.endsWith(condition.literal);
+                case OP_CONTAINS:
+                    return value.contains(condition.literal);
+                default:
+                    return globMatches(value, condition.globParts);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.h2tg.rasp.core;
+
+import com.h2tg.rasp.log.MicroLogger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Startup profiler for the agent installation.
+ * Times each install phase and aggregates per-type matching/transformation cost
+ * reported by {@link HookListener}, so one summary replaces per-class log lines.
+ *
+ * Usage:
+ * - Agent wraps each install phase with {@link #begin()} / {@link #end(Phase, long)}
+ * - HookListener feeds per-type timings via {@link #recordIgnored} / {@link #recordTransformed}
+ * - {@link #getReport()} returns a snapshot, {@link #logReport()} writes it to the log
+ */
+public class StartupProfiler {
+
+    /**
+     * Install phases in execution order
+     */
+    public enum Phase {
+        BOOTSTRAP_INJECTION("bootstrap injection"),
+        HOOK_DISCOVERY("hook discovery"),
+        BUILDER_CONSTRUCTION("builder construction"),
+        RETRANSFORMATION("retransformation"),
+        INSTALLATION("installation");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final StartupProfiler INSTANCE = new StartupProfiler();
+
+    private final Map<Phase, AtomicLong> phaseNanos = new EnumMap<>(Phase.class);
+
+    private final AtomicLong ignoredCount = new AtomicLong();
+    private final AtomicLong ignoredNanos = new AtomicLong();
+    private final AtomicLong transformedCount = new AtomicLong();
+    private final AtomicLong transformedNanos = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private volatile boolean recording = true;
+
+    private volatile long slowestTransformNanos;
+    private volatile String slowestTransformType;
+
+    private StartupProfiler() {
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new AtomicLong());
+        }
+    }
+
+    /**
+     * Get singleton instance
+     */
+    public static StartupProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Clear all timings (agent re-attached after uninstall)
+     */
+    public synchronized void reset() {
+        for (AtomicLong nanos : phaseNanos.values()) {
+            nanos.set(0);
+        }
+        ignoredCount.set(0);
+        ignoredNanos.set(0);
+        transformedCount.set(0);
+        transformedNanos.set(0);
+        errorCount.set(0);
+        slowestTransformNanos = 0;
+        slowestTransformType = null;
+        recording = true;
+    }
+
+    /**
+     * Start timing, returns the token to pass to {@link #end(Phase, long)}
+     */
+    public long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Stop timing a phase started with {@link #begin()}
+     */
+    public void end(Phase phase, long start) {
+        record(phase, System.nanoTime() - start);
+    }
+
+    /**
+     * Add a measured duration to a phase
+     */
+    public void record(Phase phase, long nanos) {
+        phaseNanos.get(phase).addAndGet(nanos);
+    }
+
+    /**
+     * Whether per-type timings are still collected
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Stop collecting per-type timings once installation (or the async retransformation) is over, the collected report stays available
+     */
+    public void stopRecording() {
+        recording = false;
+    }
+
+    /**
+     * Record a type that was matched against all hooks and left untouched
+     */
+    public void recordIgnored(long nanos) {
+        ignoredCount.incrementAndGet();
+        ignoredNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Record a type that was matched and transformed
+     */
+    public void recordTransformed(String typeName, long nanos) {
+        transformedCount.incrementAndGet();
+        transformedNanos.addAndGet(nanos);
+        if (nanos > slowestTransformNanos) {
+            synchronized (this) {
+                if (nanos > slowestTransformNanos) {
+                    slowestTransformNanos = nanos;
+                    slowestTransformType = typeName;
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a type whose transformation failed
+     */
+    public void recordError() {
+        errorCount.incrementAndGet();
+    }
+
+    /**
+     * Take a snapshot of all timings collected so far
+     */
+    public Report getReport() {
+        Map<Phase, Long> phases = new EnumMap<>(Phase.class);
+        for (Map.Entry<Phase, AtomicLong> entry : phaseNanos.entrySet()) {
+            phases.put(entry.getKey(), entry.getValue().get());
+        }
+        synchronized (this) {
+            return new Report(phases,
+                    ignoredCount.get(), ignoredNanos.get(),
+                    transformedCount.get(), transformedNanos.get(),
+                    errorCount.get(),
+                    slowestTransformType, slowestTransformNanos);
+        }
+    }
+
+    /**
+     * Write the current summary report to the log
+     */
+    public void logReport() {
+        for (String line : getReport().toString().split("\n")) {
+            MicroLogger.info("StartupProfiler", line);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the startup timings
+     */
+    public static class Report {
+        private final Map<Phase, Long> phaseNanos;
+        private final long ignoredCount;
+        private final long ignoredNanos;
+        private final long transformedCount;
+        private final long transformedNanos;
+        private final long errorCount;
+        private final String slowestTransformType;
+        private final long slowestTransformNanos;
+
+        Report(Map<Phase, Long> phaseNanos,
+               long ignoredCount, long ignoredNanos,
+               long transformedCount, long transformedNanos,
+               long errorCount,
+               String slowestTransformType, long slowestTransformNanos) {
+            this.phaseNanos = phaseNanos;
+            this.ignoredCount = ignoredCount;
+            this.ignoredNanos = ignoredNanos;
+            this.transformedCount = transformedCount;
+            this.transformedNanos = transformedNanos;
+            this.errorCount = errorCount;
+            this.slowestTransformType = slowestTransformType;
+            this.slowestTransformNanos = slowestTransformNanos;
+        }
+
+        public long getPhaseNanos(Phase phase) {
+            Long nanos = phaseNanos.get(phase);
+            return nanos != null ? nanos : 0L;
+        }
+
+        /**
+         * Total install time, excluding retransformation which is nested in installation
+         */
+        public long getTotalNanos() {
+            long total = 0;
+            for (Map.Entry<Phase, Long> entry : phaseNanos.entrySet()) {
+                if (entry.getKey() != Phase.RETRANSFORMATION) {
+                    total += entry.getValue();
+                }
+            }
+            return total;
+        }
+
+        public long getIgnoredCount() {
+            return ignoredCount;
+        }
+
+        public long getIgnoredNanos() {
+            return ignoredNanos;
+        }
+
+        public long getTransformedCount() {
+            return transformedCount;
+        }
+
+        public long getTransformedNanos() {
+            return transformedNanos;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public String getSlowestTransformType() {
+            return slowestTransformType;
+        }
+
+        public long getSlowestTransformNanos() {
+            return slowestTransformNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Startup profile (total ").append(millis(getTotalNanos())).append(" ms)\n");
+            for (Phase phase : Phase.values()) {
+                sb.append("  ").append(phase.getLabel()).append(": ")
+                        .append(millis(getPhaseNanos(phase))).append(" ms\n");
+            }
+            sb.append("  types matched and ignored: ").append(ignoredCount)
+                    .append(" (").append(millis(ignoredNanos)).append(" ms, avg ")
+                    .append(average(ignoredNanos, ignoredCount)).append(" us)\n");
+            sb.append("  types transformed: ").append(transformedCount)
+                    .append(" (").append(millis(transformedNanos)).append(" ms, avg ")
+                    .append(average(transformedNanos, transformedCount)).append(" us)\n");
+            sb.append("  transformation errors: ").append(errorCount);
+            if (slowestTransformType != null) {
+                sb.append("\n  slowest transformation: ").append(slowestTransformType)
+                        .append(" (").append(millis(slowestTransformNanos)).append(" ms)");
+            }
+            return sb.toString();
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.3f", nanos / 1_000_000.0);
+        }
+
+        private static String average(long nanos, long count) {
+            return count == 0 ? "0" : String.format("%.1f", nanos / 1_000.0 / count);
+        }
+    }
+}
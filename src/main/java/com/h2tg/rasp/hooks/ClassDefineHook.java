@@ -0,0 +1,380 @@
+package com.h2tg.rasp.hooks;
+
+import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.ShellGuard;
+import com.h2tg.rasp.bootstrap.StackCapture;
+import net.bytebuddy.asm.Advice;
+
+/**
+ * Hook for class definition paths used to inject in-memory web shells
+ * (ClassLoader.defineClass, Unsafe.defineClass/defineAnonymousClass, Lookup.defineClass/defineHiddenClass).
+ * Class definition is heavy during startup, so ShellGuard.active() is tested first and
+ * ShellGuard.check() rejects classes not referencing web APIs with a byte scan, before policy and rules.
+ *
+ * IMPORTANT: All logic must be inlined in Advice methods.
+ * Do NOT call helper methods as they won't be available in Bootstrap ClassLoader.
+ */
+public class ClassDefineHook {
+
+    /**
+     * Hook for ClassLoader.defineClass(String, byte[], int, int, ProtectionDomain), reached from every other defineClass(byte[]) overload
+     * and from defineClass(String, ByteBuffer, ProtectionDomain) for heap buffers
+     */
+    @HookHandler(
+            hookClass = "java.lang.ClassLoader",
+            hookMethod = "defineClass",
+            parameterTypes = {"java.lang.String", "byte[]", "int", "int", "java.security.ProtectionDomain"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.SHELL
+    )
+    public static class ClassLoaderDefineAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This ClassLoader loader,
+                           @Advice.Argument(0) String name,
+                           @Advice.Argument(1) byte[] bytes,
+                           @Advice.Argument(2) int offset,
+                           @Advice.Argument(3) int length) {
+            if (!ShellGuard.active()) {
+                return;
+            }
+            String finding = ShellGuard.check(loader, bytes, offset, length);
+            if (finding == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.SHELL)) {
+                return;
+            }
+
+            String className = ShellGuard.className(name, bytes, offset, length);
+            int rule = RuleEngine.evaluate(RoutePolicy.SHELL, className);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.SHELL) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Memory shell class definition: "
+                    + className + " (" + finding + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked memory shell class definition: " + className);
+        }
+    }
+
+    /**
+     * Hook for jdk.internal.misc.Unsafe.defineClass (JDK 9+, also reached from sun.misc.Unsafe.defineClass on JDK 9-10)
+     */
+    @HookHandler(
+            hookClass = "jdk.internal.misc.Unsafe",
+            hookMethod = "defineClass",
+            parameterTypes = {"java.lang.String", "byte[]", "int", "int", "java.lang.ClassLoader", "java.security.ProtectionDomain"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.SHELL
+    )
+    public static class InternalUnsafeDefineAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String name,
+                           @Advice.Argument(1) byte[] bytes,
+                           @Advice.Argument(2) int offset,
+                           @Advice.Argument(3) int length,
+                           @Advice.Argument(4) ClassLoader loader) {
+            if (!ShellGuard.active()) {
+                return;
+            }
+            String finding = ShellGuard.check(loader, bytes, offset, length);
+            if (finding == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.SHELL)) {
+                return;
+            }
+
+            String className = ShellGuard.className(name, bytes, offset, length);
+            int rule = RuleEngine.evaluate(RoutePolicy.SHELL, className);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.SHELL) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Memory shell class definition via Unsafe: "
+                    + className + " (" + finding + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked memory shell class definition: " + className);
+        }
+    }
+
+    /**
+     * Hook for sun.misc.Unsafe.defineClass (JDK 8, native)
+     */
+    @HookHandler(
+            hookClass = "sun.misc.Unsafe",
+            hookMethod = "defineClass",
+            parameterTypes = {"java.lang.String", "byte[]", "int", "int", "java.lang.ClassLoader", "java.security.ProtectionDomain"},
+            isNative = true,
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.SHELL
+    )
+    public static class UnsafeDefineAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String name,
+                           @Advice.Argument(1) byte[] bytes,
+                           @Advice.Argument(2) int offset,
+                           @Advice.Argument(3) int length,
+                           @Advice.Argument(4) ClassLoader loader) {
+            if (!ShellGuard.active()) {
+                return;
+            }
+            String finding = ShellGuard.check(loader, bytes, offset, length);
+            if (finding == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.SHELL)) {
+                return;
+            }
+
+            String className = ShellGuard.className(name, bytes, offset, length);
+            int rule = RuleEngine.evaluate(RoutePolicy.SHELL, className);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.SHELL) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Memory shell class definition via Unsafe: "
+                    + className + " (" + finding + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked memory shell class definition: " + className);
+        }
+    }
+
+    /**
+     * Hook for jdk.internal.misc.Unsafe.defineAnonymousClass (JDK 9-16)
+     */
+    @HookHandler(
+            hookClass = "jdk.internal.misc.Unsafe",
+            hookMethod = "defineAnonymousClass",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.SHELL
+    )
+    public static class InternalUnsafeAnonymousAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) Class<?> hostClass,
+                           @Advice.Argument(1) byte[] bytes) {
+            if (!ShellGuard.active()) {
+                return;
+            }
+            String finding = ShellGuard.check(hostClass != null ? hostClass.getClassLoader() : null, bytes, 0, bytes != null ? bytes.length : 0);
+            if (finding == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.SHELL)) {
+                return;
+            }
+
+            String className = ShellGuard.className(null, bytes, 0, bytes != null ? bytes.length : 0);
+            int rule = RuleEngine.evaluate(RoutePolicy.SHELL, className);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.SHELL) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Memory shell class definition via Unsafe: "
+                    + className + " (" + finding + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked memory shell class definition: " + className);
+        }
+    }
+
+    /**
+     * Hook for sun.misc.Unsafe.defineAnonymousClass (JDK 8, native)
+     */
+    @HookHandler(
+            hookClass = "sun.misc.Unsafe",
+            hookMethod = "defineAnonymousClass",
+            isNative = true,
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.SHELL
+    )
+    public static class UnsafeAnonymousAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) Class<?> hostClass,
+                           @Advice.Argument(1) byte[] bytes) {
+            if (!ShellGuard.active()) {
+                return;
+            }
+            String finding = ShellGuard.check(hostClass != null ? hostClass.getClassLoader() : null, bytes, 0, bytes != null ? bytes.length : 0);
+            if (finding == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.SHELL)) {
+                return;
+            }
+
+            String className = ShellGuard.className(null, bytes, 0, bytes != null ? bytes.length : 0);
+            int rule = RuleEngine.evaluate(RoutePolicy.SHELL, className);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.SHELL) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Memory shell class definition via Unsafe: "
+                    + className + " (" + finding + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked memory shell class definition: " + className);
+        }
+    }
+
+    /**
+     * Hook for MethodHandles.Lookup.defineClass (JDK 9+)
+     */
+    @HookHandler(
+            hookClass = "java.lang.invoke.MethodHandles$Lookup",
+            hookMethod = "defineClass",
+            parameterTypes = {"byte[]"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.SHELL
+    )
+    public static class LookupDefineAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This java.lang.invoke.MethodHandles.Lookup lookup,
+                           @Advice.Argument(0) byte[] bytes) {
+            if (!ShellGuard.active()) {
+                return;
+            }
+            String finding = ShellGuard.check(lookup.lookupClass().getClassLoader(), bytes, 0, bytes != null ? bytes.length : 0);
+            if (finding == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.SHELL)) {
+                return;
+            }
+
+            String className = ShellGuard.className(null, bytes, 0, bytes != null ? bytes.length : 0);
+            int rule = RuleEngine.evaluate(RoutePolicy.SHELL, className);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.SHELL) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Memory shell class definition via Lookup: "
+                    + className + " (" + finding + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked memory shell class definition: " + className);
+        }
+    }
+
+    /**
+     * Hook for MethodHandles.Lookup.defineHiddenClass (JDK 15+)
+     */
+    @HookHandler(
+            hookClass = "java.lang.invoke.MethodHandles$Lookup",
+            hookMethod = "defineHiddenClass",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.SHELL
+    )
+    public static class LookupDefineHiddenAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This java.lang.invoke.MethodHandles.Lookup lookup,
+                           @Advice.Argument(0) byte[] bytes) {
+            if (!ShellGuard.active()) {
+                return;
+            }
+            String finding = ShellGuard.check(lookup.lookupClass().getClassLoader(), bytes, 0, bytes != null ? bytes.length : 0);
+            if (finding == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.SHELL)) {
+                return;
+            }
+
+            String className = ShellGuard.className(null, bytes, 0, bytes != null ? bytes.length : 0);
+            int rule = RuleEngine.evaluate(RoutePolicy.SHELL, className);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.SHELL) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Memory shell class definition via Lookup: "
+                    + className + " (" + finding + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked memory shell class definition: " + className);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.h2tg.rasp.hooks;
+
+import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.DeserializeGuard;
+import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.StackCapture;
+import net.bytebuddy.asm.Advice;
+
+/**
+ * Hook for third-party deserializer type resolution (Jackson, Fastjson, XStream, Hessian).
+ * Every library consults the same SerialHelper deny list through DeserializeGuard.
+ *
+ * IMPORTANT: All logic must be inlined in Advice methods.
+ * Do NOT call helper methods as they won't be available in Bootstrap ClassLoader.
+ */
+public class DeserializerHook {
+
+    /**
+     * Hook for Jackson ClassNameIdResolver._typeFromId (polymorphic typing with class name ids)
+     */
+    @HookHandler(
+            hookClass = "com.fasterxml.jackson.databind.jsontype.impl.ClassNameIdResolver",
+            hookMethod = "_typeFromId",
+            hook = RoutePolicy.DESERIALIZE
+    )
+    public static class JacksonTypeFromIdAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String id) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.DESERIALIZE)) {
+                return;
+            }
+
+            int rule = RuleEngine.evaluate(RoutePolicy.DESERIALIZE, id);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String matchedPattern = ruleVerdict == RuleEngine.NONE ? DeserializeGuard.checkType(id) : "rule";
+            if (matchedPattern == null) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.DESERIALIZE) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous Jackson deserialization: " + id);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous deserialization: " + id);
+        }
+    }
+
+    /**
+     * Hook for Fastjson ParserConfig.checkAutoType(String, Class, int)
+     */
+    @HookHandler(
+            hookClass = "com.alibaba.fastjson.parser.ParserConfig",
+            hookMethod = "checkAutoType",
+            parameterTypes = {"java.lang.String", "java.lang.Class", "int"},
+            hook = RoutePolicy.DESERIALIZE
+    )
+    public static class FastjsonCheckAutoTypeAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String typeName) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.DESERIALIZE)) {
+                return;
+            }
+
+            int rule = RuleEngine.evaluate(RoutePolicy.DESERIALIZE, typeName);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String matchedPattern = ruleVerdict == RuleEngine.NONE ? DeserializeGuard.checkType(typeName) : "rule";
+            if (matchedPattern == null) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.DESERIALIZE) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous Fastjson autoType: " + typeName);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous deserialization: " + typeName);
+        }
+    }
+
+    /**
+     * Hook for Fastjson2 ObjectReaderProvider.checkAutoType(String, Class, long)
+     */
+    @HookHandler(
+            hookClass = "com.alibaba.fastjson2.reader.ObjectReaderProvider",
+            hookMethod = "checkAutoType",
+            parameterTypes = {"java.lang.String", "java.lang.Class", "long"},
+            hook = RoutePolicy.DESERIALIZE
+    )
+    public static class Fastjson2CheckAutoTypeAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String typeName) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.DESERIALIZE)) {
+                return;
+            }
+
+            int rule = RuleEngine.evaluate(RoutePolicy.DESERIALIZE, typeName);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String matchedPattern = ruleVerdict == RuleEngine.NONE ? DeserializeGuard.checkType(typeName) : "rule";
+            if (matchedPattern == null) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.DESERIALIZE) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous Fastjson autoType: " + typeName);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous deserialization: " + typeName);
+        }
+    }
+
+    /**
+     * Hook for XStream DefaultMapper.realClass (end of the mapper chain, after alias resolution)
+     */
+    @HookHandler(
+            hookClass = "com.thoughtworks.xstream.mapper.DefaultMapper",
+            hookMethod = "realClass",
+            parameterTypes = {"java.lang.String"},
+            hook = RoutePolicy.DESERIALIZE
+    )
+    public static class XStreamRealClassAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String elementName) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.DESERIALIZE)) {
+                return;
+            }
+
+            int rule = RuleEngine.evaluate(RoutePolicy.DESERIALIZE, elementName);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String matchedPattern = ruleVerdict == RuleEngine.NONE ? DeserializeGuard.checkType(elementName) : "rule";
+            if (matchedPattern == null) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.DESERIALIZE) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous XStream deserialization: " + elementName);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous deserialization: " + elementName);
+        }
+    }
+
+    /**
+     * Hook for Hessian SerializerFactory.getDeserializer(String)
+     */
+    @HookHandler(
+            hookClass = "com.caucho.hessian.io.SerializerFactory",
+            hookMethod = "getDeserializer",
+            parameterTypes = {"java.lang.String"},
+            hook = RoutePolicy.DESERIALIZE
+    )
+    public static class HessianGetDeserializerAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String type) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.DESERIALIZE)) {
+                return;
+            }
+
+            int rule = RuleEngine.evaluate(RoutePolicy.DESERIALIZE, type);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String matchedPattern = ruleVerdict == RuleEngine.NONE ? DeserializeGuard.checkType(type) : "rule";
+            if (matchedPattern == null) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.DESERIALIZE) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous Hessian deserialization: " + type);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous deserialization: " + type);
+        }
+    }
+
+    /**
+     * Hook for Dubbo hessian-lite SerializerFactory.getDeserializer(String)
+     */
+    @HookHandler(
+            hookClass = "com.alibaba.com.caucho.hessian.io.SerializerFactory",
+            hookMethod = "getDeserializer",
+            parameterTypes = {"java.lang.String"},
+            hook = RoutePolicy.DESERIALIZE
+    )
+    public static class HessianLiteGetDeserializerAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String type) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.DESERIALIZE)) {
+                return;
+            }
+
+            int rule = RuleEngine.evaluate(RoutePolicy.DESERIALIZE, type);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String matchedPattern = ruleVerdict == RuleEngine.NONE ? DeserializeGuard.checkType(type) : "rule";
+            if (matchedPattern == null) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.DESERIALIZE) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous Hessian deserialization: " + type);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous deserialization: " + type);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.h2tg.rasp.hooks;
+
+import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.ExpressionGuard;
+import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.StackCapture;
+import net.bytebuddy.asm.Advice;
+
+/**
+ * Hook for expression language injection (SpEL, OGNL, MVEL).
+ * Expressions are checked at their parse/compile entry point, before any evaluation,
+ * through ExpressionGuard which caches the verdict per expression text.
+ *
+ * IMPORTANT: All logic must be inlined in Advice methods.
+ * Do NOT call helper methods as they won't be available in Bootstrap ClassLoader.
+ */
+public class ExpressionHook {
+
+    /**
+     * Hook for Spring SpelExpressionParser.doParseExpression (parseExpression, parseRaw, each #{...} of a template)
+     */
+    @HookHandler(
+            hookClass = "org.springframework.expression.spel.standard.SpelExpressionParser",
+            hookMethod = "doParseExpression",
+            hook = RoutePolicy.EXPRESSION
+    )
+    public static class SpelParseAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String expression) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.EXPRESSION)) {
+                return;
+            }
+
+            // Without a matching rule, only expressions parsed while serving a request are checked:
+            // startup parses configuration expressions (@Value, bean definitions) that may use T(...) legitimately
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.EXPRESSION, expression);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+            String finding = ruleVerdict == RuleEngine.NONE ? ExpressionGuard.check(ExpressionGuard.SPEL, expression) : "rule";
+            if (finding == null) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.EXPRESSION) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous SpEL expression (" + finding + "): "
+                    + ExpressionGuard.abbreviate(expression));
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous SpEL expression: " + finding);
+        }
+    }
+
+    /**
+     * Hook for OGNL Ognl.parseExpression (also reached from Ognl.compileExpression and Struts OgnlUtil)
+     */
+    @HookHandler(
+            hookClass = "ognl.Ognl",
+            hookMethod = "parseExpression",
+            parameterTypes = {"java.lang.String"},
+            hook = RoutePolicy.EXPRESSION
+    )
+    public static class OgnlParseAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String expression) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.EXPRESSION)) {
+                return;
+            }
+
+            // Without a matching rule, only expressions parsed while serving a request are checked:
+            // startup and configuration parse trusted expressions that may reference types legitimately
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.EXPRESSION, expression);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+            String finding = ruleVerdict == RuleEngine.NONE ? ExpressionGuard.check(ExpressionGuard.OGNL, expression) : "rule";
+            if (finding == null) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.EXPRESSION) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous OGNL expression (" + finding + "): "
+                    + ExpressionGuard.abbreviate(expression));
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous OGNL expression: " + finding);
+        }
+    }
+
+    /**
+     * Hook for MVEL.eval (all overloads, expression as String or char[])
+     */
+    @HookHandler(
+            hookClass = "org.mvel2.MVEL",
+            hookMethod = "eval",
+            hook = RoutePolicy.EXPRESSION
+    )
+    public static class MvelEvalAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) Object argument) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.EXPRESSION)) {
+                return;
+            }
+
+            String expression = ExpressionGuard.text(argument);
+            // Without a matching rule, only expressions parsed while serving a request are checked:
+            // startup and configuration parse trusted expressions that may reference types legitimately
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.EXPRESSION, expression);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+            String finding = ruleVerdict == RuleEngine.NONE ? ExpressionGuard.check(ExpressionGuard.MVEL, expression) : "rule";
+            if (finding == null) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.EXPRESSION) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous MVEL expression (" + finding + "): "
+                    + ExpressionGuard.abbreviate(expression));
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous MVEL expression: " + finding);
+        }
+    }
+
+    /**
+     * Hook for MVEL.compileExpression (all overloads, expression as String or char[])
+     */
+    @HookHandler(
+            hookClass = "org.mvel2.MVEL",
+            hookMethod = "compileExpression",
+            hook = RoutePolicy.EXPRESSION
+    )
+    public static class MvelCompileAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) Object argument) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.EXPRESSION)) {
+                return;
+            }
+
+            String expression = ExpressionGuard.text(argument);
+            // Without a matching rule, only expressions parsed while serving a request are checked:
+            // startup and configuration parse trusted expressions that may reference types legitimately
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.EXPRESSION, expression);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+            String finding = ruleVerdict == RuleEngine.NONE ? ExpressionGuard.check(ExpressionGuard.MVEL, expression) : "rule";
+            if (finding == null) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.EXPRESSION) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous MVEL expression (" + finding + "): "
+                    + ExpressionGuard.abbreviate(expression));
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked dangerous MVEL expression: " + finding);
+        }
+    }
+}
@@ -1,46 +1,108 @@
 package com.h2tg.rasp.hooks;
 
 import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.NativeGuard;
+import com.h2tg.rasp.bootstrap.StackCapture;
 import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
 import net.bytebuddy.asm.Advice;
 
 /**
  * Hook for JNI library loading monitoring and blocking.
- * Intercepts native library loading to prevent malicious library injection.
+ * Libraries outside the NativeGuard allowlist (JDK home, rasp.jni.allow paths and SHA-256 digests) are refused.
+ * The Java entry points are hooked rather than the native load methods: their classes are loaded
+ * before premain and a retransformation cannot add the prefixed native wrapper.
  */
 public class JNIHook {
 
     /**
-     * Hook for jdk.internal.loader.NativeLibraries.load (JDK 9+)
+     * Hook for jdk.internal.loader.NativeLibraries.loadLibrary (JDK 15+), name is the canonical path
      */
     @HookHandler(
             hookClass = "jdk.internal.loader.NativeLibraries",
-            hookMethod = "load",
-            isNative = true
+            hookMethod = "loadLibrary",
+            parameterTypes = {"java.lang.Class", "java.lang.String", "boolean"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.JNI
     )
     public static class NativeLibrariesAdvice {
 
         @Advice.OnMethodEnter
-        static void onEnter(@Advice.Argument(0) Object nativeLibrary,
-                           @Advice.Argument(1) String name) {
-            System.err.println("[MicroRASP] [BLOCKED] Native library loading: " + name);
+        static void onEnter(@Advice.Argument(1) String name,
+                            @Advice.Argument(2) boolean isBuiltin) {
+            if (isBuiltin) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.JNI)) {
+                return;
+            }
+            int rule = RuleEngine.evaluate(RoutePolicy.JNI, name);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String finding = ruleVerdict == RuleEngine.NONE ? NativeGuard.check(name) : "rule";
+            if (finding == null) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.JNI) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Native library loading: " + name + " (" + finding + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
             throw new SecurityException("MicroRASP blocked native library loading: " + name);
         }
     }
 
     /**
-     * Hook for java.lang.ClassLoader.NativeLibrary.load (JDK 8)
+     * Hook for java.lang.ClassLoader.loadLibrary0 (JDK 8-14), called for each candidate file on the library path
      */
     @HookHandler(
-            hookClass = "java.lang.ClassLoader.NativeLibrary",
-            hookMethod = "load",
-            isNative = true
+            hookClass = "java.lang.ClassLoader",
+            hookMethod = "loadLibrary0",
+            parameterTypes = {"java.lang.Class", "java.io.File"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.JNI
     )
-    public static class NativeLibraryAdvice {
+    public static class ClassLoaderLoadLibraryAdvice {
 
         @Advice.OnMethodEnter
-        static void onEnter(@Advice.Argument(0) String name) {
-            System.err.println("[MicroRASP] [BLOCKED] Native library loading: " + name);
+        static void onEnter(@Advice.Argument(1) java.io.File file) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.JNI)) {
+                return;
+            }
+            String name = file.getPath();
+            int rule = RuleEngine.evaluate(RoutePolicy.JNI, name);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String finding = ruleVerdict == RuleEngine.NONE ? NativeGuard.check(file) : "rule";
+            if (finding == null) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.JNI) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Native library loading: " + name + " (" + finding + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
             throw new SecurityException("MicroRASP blocked native library loading: " + name);
         }
     }
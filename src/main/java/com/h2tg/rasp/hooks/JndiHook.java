@@ -1,7 +1,11 @@
 package com.h2tg.rasp.hooks;
 
 import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.StackCapture;
 import com.h2tg.rasp.bootstrap.JndiHelper;
+import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
 import net.bytebuddy.asm.Advice;
 
 import static com.h2tg.rasp.bootstrap.JndiHelper.getFactoryLocation;
@@ -24,7 +28,9 @@ public class JndiHook {
      */
     @HookHandler(
             hookClass = "javax.naming.spi.NamingManager",
-            hookMethod = "getObjectFactoryFromReference"
+            hookMethod = "getObjectFactoryFromReference",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.JNDI
     )
     public static class GetObjectFactoryFromReferenceAdvice {
 
@@ -36,24 +42,126 @@ public class JndiHook {
             if (ref == null) {
                 return;
             }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.JNDI)) {
+                return;
+            }
+            int rule = RuleEngine.evaluate(RoutePolicy.JNDI, factoryName);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.JNDI) && ruleVerdict != RuleEngine.MONITOR;
 
             Class<?> refClass = ref.getClass();
 
             // Step 1: Check factoryClassLocation (remote code loading)
             String factoryLocation = getFactoryLocation(refClass, ref);
             if (factoryLocation != null && !factoryLocation.isEmpty()) {
-                System.err.println("[MicroRASP] [BLOCKED] Remote JNDI factory location: "+ factoryLocation);
+                System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Remote JNDI factory location: "+ factoryLocation);
+                StackCapture.logBlockSite();
+                RuleEngine.logRule(rule);
+                if (!block) {
+                    return;
+                }
                 throw new SecurityException("MicroRASP blocked remote JNDI factory location: " + factoryLocation);
             }
 
 
-            String matchedPattern = JndiHelper.checkDenyFactory(factoryName);
+            String matchedPattern = ruleVerdict == RuleEngine.NONE ? JndiHelper.checkDenyFactory(factoryName) : "rule";
             if (matchedPattern != null) {
-                System.err.println("[MicroRASP] [BLOCKED] Dangerous JNDI factory class: "+ factoryName);
+                System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous JNDI factory class: "+ factoryName);
+                StackCapture.logBlockSite();
+                RuleEngine.logRule(rule);
+                if (!block) {
+                    return;
+                }
                 throw new SecurityException("MicroRASP blocked dangerous JNDI factory: " + factoryName);
             }
         }
     }
 
+    /**
+     * Hook for InitialContext.lookup method (String and Name overloads).
+     * Rejects URL names targeting non-allowed naming providers before any socket is opened,
+     * unlike GetObjectFactoryFromReferenceAdvice which runs after the remote server answered.
+     */
+    @HookHandler(
+            hookClass = "javax.naming.InitialContext",
+            hookMethod = "lookup",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.JNDI
+    )
+    public static class InitialContextLookupAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) Object name) {
+            if (name == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.JNDI)) {
+                return;
+            }
+
+            String jndiName = name instanceof String ? (String) name : name.toString();
+            int rule = RuleEngine.evaluate(RoutePolicy.JNDI, jndiName);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String matchedScheme = ruleVerdict == RuleEngine.NONE ? JndiHelper.checkLookupName(jndiName) : "rule";
+            if (matchedScheme != null) {
+                boolean block = RoutePolicy.blocks(policy, RoutePolicy.JNDI) && ruleVerdict != RuleEngine.MONITOR;
+                System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " JNDI lookup of remote provider: " + jndiName);
+                StackCapture.logBlockSite();
+                RuleEngine.logRule(rule);
+                if (!block) {
+                    return;
+                }
+                throw new SecurityException("MicroRASP blocked JNDI lookup of remote provider: " + jndiName);
+            }
+        }
+    }
+
+    /**
+     * Hook for InitialContext.lookupLink method (String and Name overloads).
+     */
+    @HookHandler(
+            hookClass = "javax.naming.InitialContext",
+            hookMethod = "lookupLink",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.JNDI
+    )
+    public static class InitialContextLookupLinkAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) Object name) {
+            if (name == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.JNDI)) {
+                return;
+            }
 
+            String jndiName = name instanceof String ? (String) name : name.toString();
+            int rule = RuleEngine.evaluate(RoutePolicy.JNDI, jndiName);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+            String matchedScheme = ruleVerdict == RuleEngine.NONE ? JndiHelper.checkLookupName(jndiName) : "rule";
+            if (matchedScheme != null) {
+                boolean block = RoutePolicy.blocks(policy, RoutePolicy.JNDI) && ruleVerdict != RuleEngine.MONITOR;
+                System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " JNDI lookup of remote provider: " + jndiName);
+                StackCapture.logBlockSite();
+                RuleEngine.logRule(rule);
+                if (!block) {
+                    return;
+                }
+                throw new SecurityException("MicroRASP blocked JNDI lookup of remote provider: " + jndiName);
+            }
+        }
+    }
 }
@@ -0,0 +1,156 @@
+package com.h2tg.rasp.hooks;
+
+import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.NetworkGuard;
+import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.StackCapture;
+import net.bytebuddy.asm.Advice;
+
+/**
+ * Hook for outbound connections (SSRF protection).
+ * The resolved destination is checked against the NetworkGuard CIDR tree. Like command execution,
+ * only connections opened while serving a request are checked unless a rule matches.
+ *
+ * IMPORTANT: All logic must be inlined in Advice methods.
+ * Do NOT call helper methods as they won't be available in Bootstrap ClassLoader.
+ */
+public class NetworkHook {
+
+    /**
+     * Hook for Socket.connect(SocketAddress, int), also reached from connect(SocketAddress) and the connecting constructors
+     */
+    @HookHandler(
+            hookClass = "java.net.Socket",
+            hookMethod = "connect",
+            parameterTypes = {"java.net.SocketAddress", "int"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.NETWORK
+    )
+    public static class SocketConnectAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) Object endpoint) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.NETWORK)) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.NETWORK, NetworkGuard.subject(endpoint));
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+            String matchedRange = ruleVerdict == RuleEngine.NONE ? NetworkGuard.checkEndpoint(endpoint) : "rule";
+            if (matchedRange == null) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.NETWORK) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Outbound connection to denied address: "
+                    + endpoint + " (" + matchedRange + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked outbound connection to " + endpoint);
+        }
+    }
+
+    /**
+     * Hook for SocketChannel.connect (NIO clients: Netty, Apache HttpAsyncClient, JDK HttpClient)
+     */
+    @HookHandler(
+            hookClass = "sun.nio.ch.SocketChannelImpl",
+            hookMethod = "connect",
+            parameterTypes = {"java.net.SocketAddress"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.NETWORK
+    )
+    public static class SocketChannelConnectAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) Object endpoint) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.NETWORK)) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.NETWORK, NetworkGuard.subject(endpoint));
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+            String matchedRange = ruleVerdict == RuleEngine.NONE ? NetworkGuard.checkEndpoint(endpoint) : "rule";
+            if (matchedRange == null) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.NETWORK) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Outbound connection to denied address: "
+                    + endpoint + " (" + matchedRange + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked outbound connection to " + endpoint);
+        }
+    }
+
+    /**
+     * Hook for the JDK HttpURLConnection.plainConnect.
+     * Checks the URL host itself, which the socket hooks never see when the request goes through a proxy.
+     */
+    @HookHandler(
+            hookClass = "sun.net.www.protocol.http.HttpURLConnection",
+            hookMethod = "plainConnect",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.NETWORK
+    )
+    public static class HttpURLConnectionAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object connection) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.NETWORK)) {
+                return;
+            }
+
+            java.net.URL url = ((java.net.URLConnection) connection).getURL();
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.NETWORK, NetworkGuard.subject(url));
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+            String matchedRange = ruleVerdict == RuleEngine.NONE ? NetworkGuard.checkHost(url.getHost()) : "rule";
+            if (matchedRange == null) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.NETWORK) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " HTTP request to denied address: "
+                    + url + " (" + matchedRange + ")");
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked HTTP request to " + url);
+        }
+    }
+}
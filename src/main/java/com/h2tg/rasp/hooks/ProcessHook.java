@@ -1,7 +1,10 @@
 package com.h2tg.rasp.hooks;
 
 import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.StackCapture;
 import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
 import net.bytebuddy.asm.Advice;
 
 /**
@@ -19,19 +22,40 @@ public class ProcessHook {
     @HookHandler(
             hookClass = "java.lang.ProcessImpl",
             hookMethod = "create",
-            isNative = true
+            isNative = true,
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.PROCESS
     )
     public static class WindowsCreateAdvice {
 
         @Advice.OnMethodEnter
         static void onEnter(@Advice.Argument(0) String cmdstr) {
+            if (cmdstr == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.PROCESS)) {
+                return;
+            }
+
+            // Without a matching rule, only commands spawned while serving a request are reported
             Object request = RequestContext.getCurrentRequest();
-            if (request == null || cmdstr == null) {
+            int rule = RuleEngine.evaluate(RoutePolicy.PROCESS, cmdstr);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
                 return;
             }
 
-            System.err.println("[MicroRASP] [BLOCKED] Command execution: " + cmdstr);
-            RequestContext.logRequestInfo(request);
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.PROCESS) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Command execution: " + cmdstr);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
             throw new SecurityException("MicroRASP blocked command execution: " + cmdstr);
         }
     }
@@ -42,20 +66,41 @@ public class ProcessHook {
     @HookHandler(
             hookClass = "java.lang.ProcessImpl",
             hookMethod = "forkAndExec",
-            isNative = true
+            isNative = true,
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.PROCESS
     )
     public static class ProcessForkAndExecAdvice {
 
         @Advice.OnMethodEnter
         static void onEnter(@Advice.Argument(2) byte[] prog) {
-            Object request = RequestContext.getCurrentRequest();
-            if (request == null || prog == null) {
+            if (prog == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.PROCESS)) {
                 return;
             }
 
             String cmd = new String(prog).replace("\0", " ").trim();
-            System.err.println("[MicroRASP] [BLOCKED] Command execution: " + cmd);
-            RequestContext.logRequestInfo(request);
+            // Without a matching rule, only commands spawned while serving a request are reported
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.PROCESS, cmd);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.PROCESS) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Command execution: " + cmd);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
             throw new SecurityException("MicroRASP blocked command execution: " + cmd);
         }
     }
@@ -66,20 +111,87 @@ public class ProcessHook {
     @HookHandler(
             hookClass = "java.lang.UNIXProcess",
             hookMethod = "forkAndExec",
-            isNative = true
+            isNative = true,
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.PROCESS
     )
     public static class UnixForkAndExecAdvice {
 
         @Advice.OnMethodEnter
         static void onEnter(@Advice.Argument(2) byte[] prog) {
-            Object request = RequestContext.getCurrentRequest();
-            if (request == null || prog == null) {
+            if (prog == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.PROCESS)) {
                 return;
             }
 
             String cmd = new String(prog).replace("\0", " ").trim();
-            System.err.println("[MicroRASP] [BLOCKED] Command execution: " + cmd);
-            RequestContext.logRequestInfo(request);
+            // Without a matching rule, only commands spawned while serving a request are reported
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.PROCESS, cmd);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.PROCESS) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Command execution: " + cmd);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked command execution: " + cmd);
+        }
+    }
+
+    /**
+     * Hook for ProcessImpl.start (JDK 8+, all platforms), the non-native entry point of ProcessBuilder.start and Runtime.exec.
+     * Dynamic attach only: retransformation cannot wrap the already loaded native create/forkAndExec methods.
+     */
+    @HookHandler(
+            hookClass = "java.lang.ProcessImpl",
+            hookMethod = "start",
+            attachOnly = true,
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.PROCESS
+    )
+    public static class ProcessStartAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String[] cmdarray) {
+            if (cmdarray == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.PROCESS)) {
+                return;
+            }
+
+            String cmd = String.join(" ", cmdarray).trim();
+            // Without a matching rule, only commands spawned while serving a request are reported
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.PROCESS, cmd);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.PROCESS) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Command execution: " + cmd);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
             throw new SecurityException("MicroRASP blocked command execution: " + cmd);
         }
     }
@@ -1,6 +1,10 @@
 package com.h2tg.rasp.hooks;
 
 import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.StackCapture;
 import net.bytebuddy.asm.Advice;
 
 public class RMIHook
@@ -11,7 +15,9 @@ public class RMIHook
      */
     @HookHandler(
             hookClass = "sun.rmi.server.LoaderHandler",
-            hookMethod = "lookupLoader"
+            hookMethod = "lookupLoader",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.RMI
     )
     public static class RMILookupLoaderAdvice {
 
@@ -20,6 +26,10 @@ public class RMIHook
             if (urls == null) {
                 return;
             }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.RMI)) {
+                return;
+            }
 
             if (urls instanceof java.net.URL[]) {
                 java.net.URL[] urlArray = (java.net.URL[]) urls;
@@ -27,8 +37,21 @@ public class RMIHook
                     return;
                 }
 
-                System.err.println("[MicroRASP] [BLOCKED] RMI codebase: " + java.util.Arrays.toString(urlArray));
-                throw new SecurityException("MicroRASP blocked RMI codebase: " + java.util.Arrays.toString(urlArray));
+                String codebase = java.util.Arrays.toString(urlArray);
+                int rule = RuleEngine.evaluate(RoutePolicy.RMI, codebase);
+                int ruleVerdict = RuleEngine.verdict(rule);
+                if (ruleVerdict == RuleEngine.ALLOW) {
+                    return;
+                }
+
+                boolean block = RoutePolicy.blocks(policy, RoutePolicy.RMI) && ruleVerdict != RuleEngine.MONITOR;
+                System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " RMI codebase: " + codebase);
+                StackCapture.logBlockSite();
+                RuleEngine.logRule(rule);
+                if (!block) {
+                    return;
+                }
+                throw new SecurityException("MicroRASP blocked RMI codebase: " + codebase);
             }
         }
     }
@@ -0,0 +1,157 @@
+package com.h2tg.rasp.hooks;
+
+import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.ReflectionGuard;
+import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.StackCapture;
+import net.bytebuddy.asm.Advice;
+
+/**
+ * Hook for reflective access to dangerous sinks (gadget chains reaching Runtime, TemplatesImpl, JdbcRowSetImpl).
+ * These are among the hottest JDK methods, so the first statement of every advice is the ReflectionGuard
+ * per-class danger bit; policy, rules and RequestContext are only consulted for flagged classes.
+ *
+ * IMPORTANT: All logic must be inlined in Advice methods.
+ * Do NOT call helper methods as they won't be available in Bootstrap ClassLoader.
+ */
+public class ReflectionHook {
+
+    /**
+     * Hook for Method.invoke
+     */
+    @HookHandler(
+            hookClass = "java.lang.reflect.Method",
+            hookMethod = "invoke",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.REFLECTION
+    )
+    public static class MethodInvokeAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This java.lang.reflect.Method method) {
+            Class<?> type = method.getDeclaringClass();
+            if (ReflectionGuard.bits(type) == 0) {
+                return;
+            }
+            String sink = ReflectionGuard.checkMember(type, method.getName());
+            if (sink == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.REFLECTION)) {
+                return;
+            }
+
+            int rule = RuleEngine.evaluate(RoutePolicy.REFLECTION, sink);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.REFLECTION) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Reflective invocation of dangerous method: " + sink);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked reflective invocation of " + sink);
+        }
+    }
+
+    /**
+     * Hook for Constructor.newInstance (also reached from Class.newInstance)
+     */
+    @HookHandler(
+            hookClass = "java.lang.reflect.Constructor",
+            hookMethod = "newInstance",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.REFLECTION
+    )
+    public static class ConstructorNewInstanceAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This java.lang.reflect.Constructor<?> constructor) {
+            Class<?> type = constructor.getDeclaringClass();
+            if (ReflectionGuard.bits(type) == 0) {
+                return;
+            }
+            String sink = ReflectionGuard.checkMember(type, "<init>");
+            if (sink == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.REFLECTION)) {
+                return;
+            }
+
+            int rule = RuleEngine.evaluate(RoutePolicy.REFLECTION, sink);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.REFLECTION) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Reflective instantiation of dangerous class: " + sink);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked reflective instantiation of " + sink);
+        }
+    }
+
+    /**
+     * Hook for Class.forName (all overloads), checked on the loaded class so aliases and array names resolve once
+     */
+    @HookHandler(
+            hookClass = "java.lang.Class",
+            hookMethod = "forName",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.REFLECTION
+    )
+    public static class ClassForNameAdvice {
+
+        @Advice.OnMethodExit
+        static void onExit(@Advice.Return Class<?> type) {
+            if (type == null || (ReflectionGuard.bits(type) & ReflectionGuard.FOR_NAME) == 0) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.REFLECTION)) {
+                return;
+            }
+
+            String sink = type.getName();
+            int rule = RuleEngine.evaluate(RoutePolicy.REFLECTION, sink);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.REFLECTION) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous class loaded by name: " + sink);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked loading of " + sink);
+        }
+    }
+}
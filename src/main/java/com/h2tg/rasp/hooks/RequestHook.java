@@ -1,12 +1,24 @@
 package com.h2tg.rasp.hooks;
 
 import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.BodyScanner;
 import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RequestShape;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.StackCapture;
 import net.bytebuddy.asm.Advice;
 
 /**
- * Hook for HTTP request tracking in Servlet/Spring Boot applications.
- * Captures HTTP requests and stores them in RequestContext ThreadLocal for context-aware protection.
+ * Hook for HTTP request tracking in Servlet/Spring Boot, Undertow, Netty and Reactor Netty (WebFlux) applications.
+ * Captures HTTP requests and stores them in the per-thread RequestContext holder for context-aware protection.
+ * The route policy is resolved once per request, downstream hooks only test its bits.
+ * Entries nest (forward/include, nested dispatch, Undertow servlets inside executeRootHandler, chained handlers):
+ * the outermost request stays current until its own exit, and no ThreadLocal entry is written or removed per request.
+ *
+ * With the optional body hook (rasp.hooks=...,body), the bytes servlet containers return from ServletInputStream
+ * reads are fed to BodyScanner in place. Only the container read method that does the actual reading is hooked,
+ * so delegating overloads (read(byte[]), single-byte read() on Jetty and Undertow) are not scanned twice.
  */
 public class RequestHook {
 
@@ -27,12 +39,12 @@ public class RequestHook {
 
         @Advice.OnMethodEnter
         static void onEnter(@Advice.Argument(0) Object request) {
-            RequestContext.currentRequest.set(request);
+            RequestContext.enter(request);
         }
 
         @Advice.OnMethodExit(onThrowable = Throwable.class)
         static void onExit() {
-            RequestContext.currentRequest.remove();
+            RequestContext.exit();
         }
     }
 
@@ -53,12 +65,300 @@ public class RequestHook {
 
         @Advice.OnMethodEnter
         static void onEnter(@Advice.Argument(0) Object request) {
-            RequestContext.currentRequest.set(request);
+            RequestContext.enter(request);
         }
 
         @Advice.OnMethodExit(onThrowable = Throwable.class)
         static void onExit() {
-            RequestContext.currentRequest.remove();
+            RequestContext.exit();
+        }
+    }
+
+    /**
+     * Hook for io.undertow.server.Connectors.executeRootHandler (plain Undertow handlers and WebFlux on Undertow).
+     * Runs both on the IO thread and again on the worker thread after HttpServerExchange.dispatch.
+     */
+    @HookHandler(
+            hookClass = "io.undertow.server.Connectors",
+            hookMethod = "executeRootHandler",
+            parameterTypes = {
+                "io.undertow.server.HttpHandler",
+                "io.undertow.server.HttpServerExchange"
+            }
+    )
+    public static class UndertowRootHandlerAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(1) Object exchange) {
+            RequestContext.enter(exchange);
+        }
+
+        @Advice.OnMethodExit(onThrowable = Throwable.class)
+        static void onExit() {
+            RequestContext.exit();
+        }
+    }
+
+    /**
+     * Hook for io.netty.channel.SimpleChannelInboundHandler.channelRead (plain Netty HTTP pipelines).
+     * Only HttpRequest messages open a context, body chunks and other messages pass untouched.
+     * Runs on the event loop, so the entry never waits for an async install to complete.
+     */
+    @HookHandler(
+            hookClass = "io.netty.channel.SimpleChannelInboundHandler",
+            hookMethod = "channelRead",
+            parameterTypes = {
+                "io.netty.channel.ChannelHandlerContext",
+                "java.lang.Object"
+            }
+    )
+    public static class NettyChannelReadAdvice {
+
+        @Advice.OnMethodEnter
+        static boolean onEnter(@Advice.Argument(1) Object msg) {
+            if (!RequestShape.isRequest(msg)) {
+                return false;
+            }
+            RequestContext.enter(msg, true);
+            return true;
+        }
+
+        @Advice.OnMethodExit(onThrowable = Throwable.class)
+        static void onExit(@Advice.Enter boolean entered) {
+            if (entered) {
+                RequestContext.exit();
+            }
+        }
+    }
+
+    /**
+     * Hook for Reactor Netty HttpServerHandle.onStateChange, where the server handler
+     * (WebFlux ReactorHttpHandlerAdapter) is applied and subscribed on REQUEST_RECEIVED.
+     */
+    @HookHandler(
+            hookClass = "reactor.netty.http.server.HttpServer$HttpServerHandle",
+            hookMethod = "onStateChange"
+    )
+    public static class ReactorNettyHandleAdvice {
+
+        @Advice.OnMethodEnter
+        static boolean onEnter(@Advice.Argument(0) Object connection) {
+            if (!RequestShape.isRequest(connection)) {
+                return false;
+            }
+            RequestContext.enterExchange(connection);
+            return true;
+        }
+
+        @Advice.OnMethodExit(onThrowable = Throwable.class)
+        static void onExit(@Advice.Enter boolean entered) {
+            if (entered) {
+                RequestContext.exit();
+            }
+        }
+    }
+
+    /**
+     * Hook for Reactor Netty HttpServerOperations.onInboundNext, where request body chunks
+     * resume the handler (e.g. a WebFlux controller waiting for @RequestBody) on the event loop.
+     * The policy resolved when the request was received is reused, chunks do not resolve it again.
+     */
+    @HookHandler(
+            hookClass = "reactor.netty.http.server.HttpServerOperations",
+            hookMethod = "onInboundNext"
+    )
+    public static class ReactorNettyInboundAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object operations) {
+            RequestContext.enterExchange(operations);
+        }
+
+        @Advice.OnMethodExit(onThrowable = Throwable.class)
+        static void onExit() {
+            RequestContext.exit();
+        }
+    }
+
+    /**
+     * Hook for reactor.core.scheduler.Schedulers.onSchedule, the decoration point every Reactor scheduler
+     * applies to its tasks (publishOn/subscribeOn hops, e.g. blocking work on boundedElastic).
+     * The request context travels with the task, a plain ThreadLocal would be lost across the hop.
+     */
+    @HookHandler(
+            hookClass = "reactor.core.scheduler.Schedulers",
+            hookMethod = "onSchedule",
+            parameterTypes = {"java.lang.Runnable"}
+    )
+    public static class ReactorScheduleAdvice {
+
+        @Advice.OnMethodExit
+        static void onExit(@Advice.Return(readOnly = false) Runnable task) {
+            task = RequestContext.capture(task);
+        }
+    }
+
+    /**
+     * Hook for Tomcat CoyoteInputStream.read(byte[], int, int), read(byte[]) delegates here
+     */
+    @HookHandler(
+            hookClass = "org.apache.catalina.connector.CoyoteInputStream",
+            hookMethod = "read",
+            parameterTypes = {"byte[]", "int", "int"},
+            hook = RoutePolicy.BODY
+    )
+    public static class TomcatBodyReadAdvice {
+
+        @Advice.OnMethodExit
+        static void onExit(@Advice.Argument(0) byte[] bytes, @Advice.Argument(1) int offset, @Advice.Return int count) {
+            String finding = BodyScanner.scan(bytes, offset, count);
+            if (finding == null) {
+                return;
+            }
+
+            int policy = RequestContext.getPolicy();
+            int rule = RuleEngine.evaluate(RoutePolicy.BODY, finding);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.BODY) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Request body indicator: " + finding);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            RequestContext.tagBody(finding);
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked request body: " + finding);
+        }
+    }
+
+    /**
+     * Hook for Tomcat CoyoteInputStream.read(), reads the input buffer directly (also ServletInputStream.readLine)
+     */
+    @HookHandler(
+            hookClass = "org.apache.catalina.connector.CoyoteInputStream",
+            hookMethod = "read",
+            parameterTypes = {},
+            hook = RoutePolicy.BODY
+    )
+    public static class TomcatBodyReadByteAdvice {
+
+        @Advice.OnMethodExit
+        static void onExit(@Advice.Return int b) {
+            String finding = BodyScanner.scan(b);
+            if (finding == null) {
+                return;
+            }
+
+            int policy = RequestContext.getPolicy();
+            int rule = RuleEngine.evaluate(RoutePolicy.BODY, finding);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.BODY) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Request body indicator: " + finding);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            RequestContext.tagBody(finding);
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked request body: " + finding);
+        }
+    }
+
+    /**
+     * Hook for Jetty 9-11 HttpInput.read(byte[], int, int), read() and read(byte[]) delegate here
+     */
+    @HookHandler(
+            hookClass = "org.eclipse.jetty.server.HttpInput",
+            hookMethod = "read",
+            parameterTypes = {"byte[]", "int", "int"},
+            hook = RoutePolicy.BODY
+    )
+    public static class JettyBodyReadAdvice {
+
+        @Advice.OnMethodExit
+        static void onExit(@Advice.Argument(0) byte[] bytes, @Advice.Argument(1) int offset, @Advice.Return int count) {
+            String finding = BodyScanner.scan(bytes, offset, count);
+            if (finding == null) {
+                return;
+            }
+
+            int policy = RequestContext.getPolicy();
+            int rule = RuleEngine.evaluate(RoutePolicy.BODY, finding);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.BODY) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Request body indicator: " + finding);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            RequestContext.tagBody(finding);
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked request body: " + finding);
+        }
+    }
+
+    /**
+     * Hook for Undertow ServletInputStreamImpl.read(byte[], int, int), read() and read(byte[]) delegate here
+     */
+    @HookHandler(
+            hookClass = "io.undertow.servlet.spec.ServletInputStreamImpl",
+            hookMethod = "read",
+            parameterTypes = {"byte[]", "int", "int"},
+            hook = RoutePolicy.BODY
+    )
+    public static class UndertowBodyReadAdvice {
+
+        @Advice.OnMethodExit
+        static void onExit(@Advice.Argument(0) byte[] bytes, @Advice.Argument(1) int offset, @Advice.Return int count) {
+            String finding = BodyScanner.scan(bytes, offset, count);
+            if (finding == null) {
+                return;
+            }
+
+            int policy = RequestContext.getPolicy();
+            int rule = RuleEngine.evaluate(RoutePolicy.BODY, finding);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            Object request = RequestContext.getCurrentRequest();
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.BODY) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Request body indicator: " + finding);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            RequestContext.tagBody(finding);
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked request body: " + finding);
         }
     }
 }
@@ -1,7 +1,11 @@
 package com.h2tg.rasp.hooks;
 
 import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.StackCapture;
 import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.SerialFilter;
 import com.h2tg.rasp.bootstrap.SerialHelper;
 import net.bytebuddy.asm.Advice;
 
@@ -53,30 +57,66 @@ public class SerialHook {
      * Hook for ObjectInputStream.readClassDesc method
      * This method is called when reading class descriptors from the stream.
      * Provides broader coverage than resolveClass for deserialization detection.
+     * Each descriptor is checked against the deny list and fed to the stream's gadget-chain automaton.
+     * On JDK 9+ the deny list check of resolved classes is done by SerialFilter before this advice runs.
      */
     @HookHandler(
             hookClass = "java.io.ObjectInputStream",
-            hookMethod = "readClassDesc"
+            hookMethod = "readClassDesc",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.DESERIALIZE
     )
     public static class ReadClassDescAdvice {
 
         @Advice.OnMethodExit
-        static void onExit(@Advice.Return Object ret) {
+        static void onExit(@Advice.This Object stream,
+                           @Advice.Return Object ret) {
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.DESERIALIZE)) {
+                return;
+            }
+
             String className = getClassName(ret);
             if (className == null || className.isEmpty()) {
                 return;
             }
 
-            String matchedPattern = SerialHelper.checkDenyClass(className);
-            if (matchedPattern == null) {
+            int rule = RuleEngine.evaluate(RoutePolicy.DESERIALIZE, className);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW) {
+                return;
+            }
+
+            String matchedPattern;
+            if (ruleVerdict != RuleEngine.NONE) {
+                matchedPattern = "rule";
+            } else if (SerialFilter.covers(stream, ret)) {
+                // Already checked (and reported) by the serial filter
+                matchedPattern = null;
+            } else {
+                matchedPattern = SerialHelper.checkDenyClass(className);
+            }
+            String matchedChain = matchedPattern == null ? SerialHelper.checkGadgetChain(stream, className) : null;
+            if (matchedPattern == null && matchedChain == null) {
                 return;
             }
 
             Object request = RequestContext.getCurrentRequest();
-            System.err.println("[MicroRASP] [BLOCKED] Dangerous deserialization: " + className);
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.DESERIALIZE) && ruleVerdict != RuleEngine.MONITOR;
+            String verdict = block ? "[BLOCKED]" : "[MONITOR]";
+            if (matchedChain != null) {
+                System.err.println("[MicroRASP] " + verdict + " Deserialization gadget chain " + matchedChain + ": " + className);
+            } else {
+                System.err.println("[MicroRASP] " + verdict + " Dangerous deserialization: " + className);
+            }
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
             if (request != null) {
                 RequestContext.logRequestInfo(request);
             }
+            if (!block) {
+                return;
+            }
 
             throw new SecurityException("MicroRASP blocked dangerous deserialization: " + className);
         }
@@ -0,0 +1,338 @@
+package com.h2tg.rasp.hooks;
+
+import com.h2tg.rasp.annotation.HookHandler;
+import com.h2tg.rasp.bootstrap.RequestContext;
+import com.h2tg.rasp.bootstrap.RoutePolicy;
+import com.h2tg.rasp.bootstrap.RuleEngine;
+import com.h2tg.rasp.bootstrap.StackCapture;
+import com.h2tg.rasp.bootstrap.XxeGuard;
+import net.bytebuddy.asm.Advice;
+
+/**
+ * Hook for XML external entity (XXE) protection.
+ * Factories (DOM, SAX, StAX, XSLT) are hardened through XxeGuard when they create a parser during a request,
+ * once per factory instance. External entity, DTD and stylesheet resolution of the JDK parser is reported
+ * (and blocked) at the JDK access check, which runs for every external resource not supplied by an EntityResolver.
+ *
+ * IMPORTANT: All logic must be inlined in Advice methods.
+ * Do NOT call helper methods as they won't be available in Bootstrap ClassLoader.
+ */
+public class XxeHook {
+
+    /**
+     * Hook for the JDK DocumentBuilderFactory.newDocumentBuilder
+     */
+    @HookHandler(
+            hookClass = "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl",
+            hookMethod = "newDocumentBuilder",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.XXE
+    )
+    public static class JdkDocumentBuilderFactoryAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object factory) {
+            if (RequestContext.getCurrentRequest() == null
+                    || !RoutePolicy.blocks(RequestContext.getPolicy(), RoutePolicy.XXE)) {
+                return;
+            }
+            XxeGuard.harden(factory);
+        }
+    }
+
+    /**
+     * Hook for Apache Xerces DocumentBuilderFactory.newDocumentBuilder
+     */
+    @HookHandler(
+            hookClass = "org.apache.xerces.jaxp.DocumentBuilderFactoryImpl",
+            hookMethod = "newDocumentBuilder",
+            hook = RoutePolicy.XXE
+    )
+    public static class XercesDocumentBuilderFactoryAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object factory) {
+            if (RequestContext.getCurrentRequest() == null
+                    || !RoutePolicy.blocks(RequestContext.getPolicy(), RoutePolicy.XXE)) {
+                return;
+            }
+            XxeGuard.harden(factory);
+        }
+    }
+
+    /**
+     * Hook for the JDK SAXParserFactory.newSAXParser
+     */
+    @HookHandler(
+            hookClass = "com.sun.org.apache.xerces.internal.jaxp.SAXParserFactoryImpl",
+            hookMethod = "newSAXParser",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.XXE
+    )
+    public static class JdkSAXParserFactoryAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object factory) {
+            if (RequestContext.getCurrentRequest() == null
+                    || !RoutePolicy.blocks(RequestContext.getPolicy(), RoutePolicy.XXE)) {
+                return;
+            }
+            XxeGuard.harden(factory);
+        }
+    }
+
+    /**
+     * Hook for Apache Xerces SAXParserFactory.newSAXParser
+     */
+    @HookHandler(
+            hookClass = "org.apache.xerces.jaxp.SAXParserFactoryImpl",
+            hookMethod = "newSAXParser",
+            hook = RoutePolicy.XXE
+    )
+    public static class XercesSAXParserFactoryAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object factory) {
+            if (RequestContext.getCurrentRequest() == null
+                    || !RoutePolicy.blocks(RequestContext.getPolicy(), RoutePolicy.XXE)) {
+                return;
+            }
+            XxeGuard.harden(factory);
+        }
+    }
+
+    /**
+     * Hook for the JDK XMLInputFactory.createXMLStreamReader (all overloads)
+     */
+    @HookHandler(
+            hookClass = "com.sun.xml.internal.stream.XMLInputFactoryImpl",
+            hookMethod = "createXMLStreamReader",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.XXE
+    )
+    public static class JdkXMLStreamReaderAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object factory) {
+            if (RequestContext.getCurrentRequest() == null
+                    || !RoutePolicy.blocks(RequestContext.getPolicy(), RoutePolicy.XXE)) {
+                return;
+            }
+            XxeGuard.harden(factory);
+        }
+    }
+
+    /**
+     * Hook for the JDK XMLInputFactory.createXMLEventReader (all overloads)
+     */
+    @HookHandler(
+            hookClass = "com.sun.xml.internal.stream.XMLInputFactoryImpl",
+            hookMethod = "createXMLEventReader",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.XXE
+    )
+    public static class JdkXMLEventReaderAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object factory) {
+            if (RequestContext.getCurrentRequest() == null
+                    || !RoutePolicy.blocks(RequestContext.getPolicy(), RoutePolicy.XXE)) {
+                return;
+            }
+            XxeGuard.harden(factory);
+        }
+    }
+
+    /**
+     * Hook for Woodstox XMLInputFactory.createXMLStreamReader (all overloads)
+     */
+    @HookHandler(
+            hookClass = "com.ctc.wstx.stax.WstxInputFactory",
+            hookMethod = "createXMLStreamReader",
+            hook = RoutePolicy.XXE
+    )
+    public static class WoodstoxXMLStreamReaderAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object factory) {
+            if (RequestContext.getCurrentRequest() == null
+                    || !RoutePolicy.blocks(RequestContext.getPolicy(), RoutePolicy.XXE)) {
+                return;
+            }
+            XxeGuard.harden(factory);
+        }
+    }
+
+    /**
+     * Hook for Woodstox XMLInputFactory.createXMLEventReader (all overloads)
+     */
+    @HookHandler(
+            hookClass = "com.ctc.wstx.stax.WstxInputFactory",
+            hookMethod = "createXMLEventReader",
+            hook = RoutePolicy.XXE
+    )
+    public static class WoodstoxXMLEventReaderAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object factory) {
+            if (RequestContext.getCurrentRequest() == null
+                    || !RoutePolicy.blocks(RequestContext.getPolicy(), RoutePolicy.XXE)) {
+                return;
+            }
+            XxeGuard.harden(factory);
+        }
+    }
+
+    /**
+     * Hook for the JDK TransformerFactory.newTransformer (identity and stylesheet)
+     */
+    @HookHandler(
+            hookClass = "com.sun.org.apache.xalan.internal.xsltc.trax.TransformerFactoryImpl",
+            hookMethod = "newTransformer",
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.XXE
+    )
+    public static class JdkTransformerFactoryAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.This Object factory) {
+            if (RequestContext.getCurrentRequest() == null
+                    || !RoutePolicy.blocks(RequestContext.getPolicy(), RoutePolicy.XXE)) {
+                return;
+            }
+            XxeGuard.harden(factory);
+        }
+    }
+
+    /**
+     * Hook for jdk.xml.internal.SecuritySupport.checkAccess (JDK 17+)
+     */
+    @HookHandler(
+            hookClass = "jdk.xml.internal.SecuritySupport",
+            hookMethod = "checkAccess",
+            parameterTypes = {"java.lang.String", "java.lang.String", "java.lang.String"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.XXE
+    )
+    public static class CheckAccessAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String systemId) {
+            if (systemId == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.XXE)) {
+                return;
+            }
+
+            // Without a matching rule, only resolution while serving a request is reported
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.XXE, systemId);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.XXE) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " External XML entity/DTD resolution: " + systemId);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked external XML resource: " + systemId);
+        }
+    }
+
+    /**
+     * Hook for com.sun.org.apache.xerces.internal.utils.SecuritySupport.checkAccess (JDK 8-16, entities and DTDs)
+     */
+    @HookHandler(
+            hookClass = "com.sun.org.apache.xerces.internal.utils.SecuritySupport",
+            hookMethod = "checkAccess",
+            parameterTypes = {"java.lang.String", "java.lang.String", "java.lang.String"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.XXE
+    )
+    public static class XercesCheckAccessAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String systemId) {
+            if (systemId == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.XXE)) {
+                return;
+            }
+
+            // Without a matching rule, only resolution while serving a request is reported
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.XXE, systemId);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.XXE) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " External XML entity/DTD resolution: " + systemId);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked external XML resource: " + systemId);
+        }
+    }
+
+    /**
+     * Hook for com.sun.org.apache.xalan.internal.utils.SecuritySupport.checkAccess (JDK 8-16, stylesheets)
+     */
+    @HookHandler(
+            hookClass = "com.sun.org.apache.xalan.internal.utils.SecuritySupport",
+            hookMethod = "checkAccess",
+            parameterTypes = {"java.lang.String", "java.lang.String", "java.lang.String"},
+            loaderScope = HookHandler.LoaderScope.BOOTSTRAP,
+            hook = RoutePolicy.XXE
+    )
+    public static class XalanCheckAccessAdvice {
+
+        @Advice.OnMethodEnter
+        static void onEnter(@Advice.Argument(0) String systemId) {
+            if (systemId == null) {
+                return;
+            }
+            int policy = RequestContext.getPolicy();
+            if (!RoutePolicy.isActive(policy, RoutePolicy.XXE)) {
+                return;
+            }
+
+            // Without a matching rule, only resolution while serving a request is reported
+            Object request = RequestContext.getCurrentRequest();
+            int rule = RuleEngine.evaluate(RoutePolicy.XXE, systemId);
+            int ruleVerdict = RuleEngine.verdict(rule);
+            if (ruleVerdict == RuleEngine.ALLOW || (ruleVerdict == RuleEngine.NONE && request == null)) {
+                return;
+            }
+
+            boolean block = RoutePolicy.blocks(policy, RoutePolicy.XXE) && ruleVerdict != RuleEngine.MONITOR;
+            System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " External XML entity/DTD resolution: " + systemId);
+            StackCapture.logBlockSite();
+            RuleEngine.logRule(rule);
+            if (request != null) {
+                RequestContext.logRequestInfo(request);
+            }
+            if (!block) {
+                return;
+            }
+            throw new SecurityException("MicroRASP blocked external XML resource: " + systemId);
+        }
+    }
+}
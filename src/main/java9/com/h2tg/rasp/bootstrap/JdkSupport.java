@@ -0,0 +1,19 @@
+package com.h2tg.rasp.bootstrap;
+
+/**
+ * JdkSupport reports which JDK-specific implementations of the multi-release jar are active.
+ * JDK 9 override of the Java 8 baseline (META-INF/versions/9).
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ */
+public class JdkSupport {
+
+    /**
+     * Feature level of the classes selected from the multi-release jar.
+     * A method rather than a constant so callers are not compiled against the baseline value.
+     *
+     * @return 8 or 9
+     */
+    public static int featureVersion() {
+        return 9;
+    }
+}
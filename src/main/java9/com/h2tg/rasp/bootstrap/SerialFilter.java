@@ -0,0 +1,115 @@
+package com.h2tg.rasp.bootstrap;
+
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * SerialFilter checks classes resolved by ObjectInputStream against SerialHelper.denyClasses through the
+ * JVM-wide ObjectInputFilter, with the verdict cached per class.
+ * JDK 9 override of the Java 8 baseline (META-INF/versions/9).
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * The JDK calls the filter for every class it resolved, before readClassDesc returns: a benign class costs
+ * one ClassValue lookup instead of a scan of the deny list per descriptor. Descriptors the filter cannot see
+ * (unresolvable classes, streams with a filter of their own) are still checked by name in ReadClassDescAdvice,
+ * which also keeps rules and gadget chains. A matching rule leaves the decision to the advice as well.
+ */
+public final class SerialFilter extends ClassValue<String> implements ObjectInputFilter {
+
+    public static final String FILTER_PROPERTY = "rasp.serial.filter";
+
+    /**
+     * Cached verdict for allowed classes
+     */
+    private static final String ALLOWED = "";
+
+    private static final SerialFilter INSTANCE = new SerialFilter();
+
+    private static volatile boolean installed;
+
+    private SerialFilter() {}
+
+    /**
+     * Install the filter as the JVM-wide serial filter, unless disabled or a filter is configured already
+     * (jdk.serialFilter): the serial filter can only be set once.
+     *
+     * @return Description of the outcome for the install log
+     */
+    public static String install() {
+        if (installed) {
+            return "installed";
+        }
+        if (!Boolean.parseBoolean(System.getProperty(FILTER_PROPERTY, "true"))) {
+            return "disabled (" + FILTER_PROPERTY + "=false), descriptors are checked by name";
+        }
+        try {
+            if (ObjectInputFilter.Config.getSerialFilter() != null) {
+                return "not installed, a serial filter is configured already (jdk.serialFilter); descriptors are checked by name";
+            }
+            ObjectInputFilter.Config.setSerialFilter(INSTANCE);
+            installed = true;
+            return "installed as the JVM-wide serial filter";
+        } catch (Throwable t) {
+            return "not installed (" + t + "), descriptors are checked by name";
+        }
+    }
+
+    /**
+     * Whether the deny list check of a descriptor was already done by the filter.
+     * This method MUST be public and static for direct access from Advice methods.
+     *
+     * @param stream The ObjectInputStream reading the descriptor
+     * @param desc The ObjectStreamClass returned by readClassDesc
+     * @return true if readClassDesc can skip SerialHelper.checkDenyClass for this descriptor
+     */
+    public static boolean covers(Object stream, Object desc) {
+        return installed
+                && desc instanceof ObjectStreamClass && ((ObjectStreamClass) desc).forClass() != null
+                && stream instanceof ObjectInputStream && ((ObjectInputStream) stream).getObjectInputFilter() == INSTANCE;
+    }
+
+    @Override
+    public Status checkInput(FilterInfo info) {
+        Class<?> type = info.serialClass();
+        if (type == null) {
+            return Status.UNDECIDED;
+        }
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        String matched = get(type);
+        if (matched == ALLOWED) {
+            return Status.UNDECIDED;
+        }
+
+        int policy = RequestContext.getPolicy();
+        if (!RoutePolicy.isActive(policy, RoutePolicy.DESERIALIZE)) {
+            return Status.UNDECIDED;
+        }
+        String className = type.getName();
+        if (RuleEngine.verdict(RuleEngine.evaluate(RoutePolicy.DESERIALIZE, className)) != RuleEngine.NONE) {
+            // ReadClassDescAdvice applies the rule
+            return Status.UNDECIDED;
+        }
+
+        Object request = RequestContext.getCurrentRequest();
+        boolean block = RoutePolicy.blocks(policy, RoutePolicy.DESERIALIZE);
+        System.err.println("[MicroRASP] " + (block ? "[BLOCKED]" : "[MONITOR]") + " Dangerous deserialization: " + className);
+        StackCapture.logBlockSite();
+        if (request != null) {
+            RequestContext.logRequestInfo(request);
+        }
+        if (!block) {
+            return Status.UNDECIDED;
+        }
+        // Reported by ObjectInputStream as InvalidClassException("filter status: REJECTED") caused by this exception
+        throw new SecurityException("MicroRASP blocked dangerous deserialization: " + className);
+    }
+
+    @Override
+    protected String computeValue(Class<?> type) {
+        String matched = SerialHelper.checkDenyClass(type.getName());
+        return matched != null ? matched : ALLOWED;
+    }
+}
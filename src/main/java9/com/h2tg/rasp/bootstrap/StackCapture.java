@@ -0,0 +1,169 @@
+package com.h2tg.rasp.bootstrap;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * StackCapture records the application call site of block events.
+ * JDK 9 override of the Java 8 baseline (META-INF/versions/9): uses StackWalker directly.
+ * MUST be injected to Bootstrap ClassLoader for cross-classloader access.
+ *
+ * Capture is bounded and lazy:
+ * - Frames are only turned into strings for new call sites
+ * - JDK and agent frames are skipped, at most rasp.stack.depth frames are kept (default 12)
+ * - Call sites are deduplicated by a hash over the kept frames, repeats only bump a counter,
+ *   beyond 1024 sites new ones share a single overflow entry
+ */
+public class StackCapture {
+
+    public static final String DEPTH_PROPERTY = "rasp.stack.depth";
+    public static final int DEFAULT_DEPTH = 12;
+
+    /**
+     * Upper bound of frames walked (kept or skipped) per capture
+     */
+    private static final int MAX_WALK = 256;
+
+    /**
+     * Upper bound of distinct call sites remembered
+     */
+    private static final int MAX_SITES = 1024;
+
+    private static final String[] SKIPPED_PREFIXES = {
+            "java.",
+            "javax.",
+            "jdk.",
+            "sun.",
+            "com.sun.",
+            "com.h2tg.rasp."
+    };
+
+    private static final int depth = Math.max(1, Integer.getInteger(DEPTH_PROPERTY, DEFAULT_DEPTH));
+
+    private static final ConcurrentHashMap<Long, Site> sites = new ConcurrentHashMap<>();
+
+    /**
+     * Shared site of every call site seen once the table holds MAX_SITES entries
+     */
+    private static final Site OVERFLOW = new Site(0L, new String[0]);
+
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+
+    /**
+     * Captured application call site
+     */
+    public static class Site {
+        private final long signature;
+        private final String[] frames;
+        private final AtomicInteger hits = new AtomicInteger();
+
+        Site(long signature, String[] frames) {
+            this.signature = signature;
+            this.frames = frames;
+        }
+
+        public long getSignature() {
+            return signature;
+        }
+
+        public String[] getFrames() {
+            return frames;
+        }
+
+        public int getHits() {
+            return hits.get();
+        }
+    }
+
+    /**
+     * Capture the current call site.
+     *
+     * @return The (possibly previously captured) call site, never null
+     */
+    public static Site capture() {
+        Site site = stackWalker.walk(StackCapture::walk);
+        site.hits.incrementAndGet();
+        return site;
+    }
+
+    /**
+     * Print the current call site to System.err for a block event.
+     * The full stack is only printed the first time a call site is seen, and not at all once MAX_SITES sites are known.
+     */
+    public static void logBlockSite() {
+        Site site = capture();
+        int hits = site.getHits();
+        if (site == OVERFLOW) {
+            System.err.println("  Call site: not recorded, " + MAX_SITES + " sites already seen (" + hits + " such events)");
+            return;
+        }
+        String id = Long.toHexString(site.signature);
+        if (hits > 1) {
+            System.err.println("  Call site: " + id + " (seen " + hits + " times)");
+            return;
+        }
+        System.err.println("  Call site: " + id);
+        for (String frame : site.frames) {
+            System.err.println("    at " + frame);
+        }
+    }
+
+    /**
+     * Check if a frame belongs to the JDK or the agent itself
+     */
+    static boolean isSkipped(String className) {
+        for (String prefix : SKIPPED_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Site walk(Stream<StackWalker.StackFrame> stream) {
+        StackWalker.StackFrame[] kept = new StackWalker.StackFrame[depth];
+        int count = 0;
+        int walked = 0;
+        long hash = 0x9E3779B97F4A7C15L;
+        Iterator<StackWalker.StackFrame> it = stream.iterator();
+        while (it.hasNext() && count < depth && walked++ < MAX_WALK) {
+            StackWalker.StackFrame frame = it.next();
+            String className = frame.getClassName();
+            if (isSkipped(className)) {
+                continue;
+            }
+            hash = mix(hash, className, frame.getMethodName(), frame.getByteCodeIndex());
+            kept[count++] = frame;
+        }
+
+        Site site = sites.get(hash);
+        if (site != null) {
+            return site;
+        }
+        if (sites.size() >= MAX_SITES) {
+            // Table full: new sites share one entry, their stacks are not printed
+            return OVERFLOW;
+        }
+        // New call site: materialize frames only now
+        String[] frames = new String[count];
+        for (int i = 0; i < count; i++) {
+            frames[i] = kept[i].toString();
+        }
+        return remember(hash, frames);
+    }
+
+    private static Site remember(long hash, String[] frames) {
+        Site site = new Site(hash, frames);
+        Site previous = sites.putIfAbsent(hash, site);
+        return previous != null ? previous : site;
+    }
+
+    private static long mix(long hash, String className, String methodName, int position) {
+        hash = (hash ^ className.hashCode()) * 0x100000001B3L;
+        hash = (hash ^ methodName.hashCode()) * 0x100000001B3L;
+        hash = (hash ^ position) * 0x100000001B3L;
+        return hash;
+    }
+}